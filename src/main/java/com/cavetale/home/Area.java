@@ -40,6 +40,16 @@ public final class Area {
         return (bx - ax + 1) * (by - ay + 1);
     }
 
+    /**
+     * Chebyshev distance, the smallest d for which isWithin(x, y, d)
+     * holds.  Zero if the point is inside.
+     */
+    public int boxDistanceToPoint(int x, int y) {
+        int dx = Math.max(0, Math.max(ax - x, x - bx));
+        int dy = Math.max(0, Math.max(ay - y, y - by));
+        return Math.max(dx, dy);
+    }
+
     /**
      * Rough distance function getting the sum of the horizontal and
      * vertical distance.  Only to be used to find nearest claim;
@@ -104,6 +114,28 @@ public final class Area {
                         Math.max(bx, x), Math.max(by, y));
     }
 
+    /**
+     * Grow by the same amount in every direction.
+     */
+    public Area outset(int n) {
+        return new Area(ax - n, ay - n, bx + n, by + n);
+    }
+
+    /**
+     * The largest n for which outset(n) holds no more than the given
+     * number of blocks, or 0.
+     */
+    public int maxOutset(long blocks) {
+        long w = width();
+        long h = height();
+        if (w * h > blocks) return 0;
+        // Solve (w + 2n)(h + 2n) = blocks for n.
+        long n = (long) ((Math.sqrt((double) ((w - h) * (w - h)) + 4.0 * blocks) - (w + h)) / 4.0);
+        while (n > 0 && (w + 2 * n) * (h + 2 * n) > blocks) n -= 1;
+        while ((w + 2 * n + 2) * (h + 2 * n + 2) <= blocks) n += 1;
+        return (int) Math.min(n, Integer.MAX_VALUE);
+    }
+
     public Vec2i getNearestOutside(Vec2i nearby) {
         int distX = Math.min(Math.abs(ax - nearby.x), Math.abs(bx - nearby.x));
         int distY = Math.min(Math.abs(ay - nearby.y), Math.abs(by - nearby.y));
@@ -0,0 +1,415 @@
+package com.cavetale.home;
+
+import com.cavetale.home.struct.LongObjectMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import org.bukkit.Bukkit;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.Particle;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockExplodeEvent;
+import org.bukkit.event.block.BlockFromToEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+
+/**
+ * Draw claim and subclaim borders for players.
+ *
+ * For each border column, the highlight sits on the first empty
+ * block above the ground, searched from the player's height.  This
+ * is computed off the main thread from chunk snapshots, and skips
+ * straight to the heightmap when the player is above it.  Results
+ * are cached per border and chunk until a block in the chunk changes
+ * or they expire.
+ *
+ * Only loaded chunks within the player's view distance are drawn.
+ * The main thread merely spawns the particles.  Each player has a
+ * queue of border chunks which is drained nearest first, within a
+ * configurable number of particle packets per tick.  Drawing the
+ * same border chunk again replaces its queue entry.  Whatever does
+ * not fit into the queue, or is left behind in another world, is
+ * dropped.
+ */
+@RequiredArgsConstructor
+final class BorderHighlighter implements Listener {
+    protected static final int DEFAULT_PACKETS_PER_TICK = 256;
+    protected static final int DEFAULT_MAX_QUEUED_PACKETS = 8192;
+    protected static final long CACHE_MILLIS = 30_000L;
+    protected static final int MAX_CACHED_BORDERS = 256;
+    protected static final int MAX_CHANGE_STAMPS = 1 << 16;
+    // The search bounds the highlight has always used
+    private static final int MIN_Y = 0;
+    private static final int MAX_Y = 127;
+    private static final BlockFace[] FACES = BlockFace.values();
+    private final HomePlugin plugin;
+    private final Map<BorderKey, LongObjectMap<BorderChunk>> cache = new HashMap<>();
+    /** The changeCounter value of the last block change per chunk. */
+    private final Map<World, LongObjectMap<long[]>> changeStamps = new IdentityHashMap<>();
+    private long changeCounter;
+    private final Map<UUID, Map<PendingKey, Pending>> queues = new HashMap<>();
+    private final List<Pending> sortBuffer = new ArrayList<>();
+    private BlockData barrier;
+    private int packetsPerTick = DEFAULT_PACKETS_PER_TICK;
+    private int maxQueuedPackets = DEFAULT_MAX_QUEUED_PACKETS;
+    protected long cacheHits;
+    protected long cacheMisses;
+    protected long emitted;
+    protected long dropped;
+    protected long deduplicated;
+
+    public enum Style {
+        CLAIM(1),
+        SUBCLAIM(2);
+
+        /** Particle packets sent per border column. */
+        protected final int packets;
+
+        Style(final int packets) {
+            this.packets = packets;
+        }
+    }
+
+    @Value
+    private static final class BorderKey {
+        private final World world;
+        private final Area area;
+    }
+
+    /**
+     * The border columns of one border in one chunk.  Each point is
+     * 4 ints: x, y, z, and the BlockFace ordinal.
+     */
+    @RequiredArgsConstructor
+    private static final class BorderChunk {
+        private final int startY;
+        private final long stamp;
+        private final long created;
+        private final int[] points;
+    }
+
+    @Value
+    private static final class PendingKey {
+        private final BorderKey border;
+        private final long chunk;
+    }
+
+    /**
+     * Points of one border chunk waiting to be drawn for one player.
+     */
+    @RequiredArgsConstructor
+    private static final class Pending {
+        private final World world;
+        private final Style style;
+        private final int[] points;
+        private final int centerX;
+        private final int centerZ;
+        private int index;
+        private long distance;
+
+        private int remainingPackets() {
+            return ((points.length - index) / 4) * style.packets;
+        }
+    }
+
+    public void enable() {
+        barrier = Material.BARRIER.createBlockData();
+        loadConfig();
+        Bukkit.getPluginManager().registerEvents(this, plugin);
+        Bukkit.getScheduler().runTaskTimer(plugin, this::tick, 1L, 1L);
+    }
+
+    public void loadConfig() {
+        packetsPerTick = Math.max(1, plugin.getConfig().getInt("Highlight.PacketsPerTick", DEFAULT_PACKETS_PER_TICK));
+        maxQueuedPackets = Math.max(packetsPerTick, plugin.getConfig().getInt("Highlight.MaxQueuedPackets", DEFAULT_MAX_QUEUED_PACKETS));
+    }
+
+    public void highlight(Player player, Area area, Style style) {
+        final World world = player.getWorld();
+        final Location location = player.getLocation();
+        final int startY = location.getBlockY();
+        final int viewDistance = player.getViewDistance();
+        final int pcx = location.getBlockX() >> 4;
+        final int pcz = location.getBlockZ() >> 4;
+        final int acx = area.ax >> 4;
+        final int acz = area.ay >> 4;
+        final int bcx = area.bx >> 4;
+        final int bcz = area.by >> 4;
+        final BorderKey key = new BorderKey(world, area);
+        LongObjectMap<BorderChunk> chunks = cache.get(key);
+        if (chunks == null) {
+            if (cache.size() >= MAX_CACHED_BORDERS) cache.clear();
+            chunks = new LongObjectMap<>();
+            cache.put(key, chunks);
+        }
+        final long now = System.currentTimeMillis();
+        final List<ChunkSnapshot> snapshots = new ArrayList<>();
+        for (int cz = Math.max(acz, pcz - viewDistance); cz <= Math.min(bcz, pcz + viewDistance); cz += 1) {
+            for (int cx = Math.max(acx, pcx - viewDistance); cx <= Math.min(bcx, pcx + viewDistance); cx += 1) {
+                if (cx != acx && cx != bcx && cz != acz && cz != bcz) continue; // Interior
+                if (!world.isChunkLoaded(cx, cz)) continue;
+                BorderChunk borderChunk = chunks.get(LongObjectMap.pack(cx, cz));
+                if (borderChunk != null && isValid(borderChunk, world, cx, cz, startY, now)) {
+                    cacheHits += 1;
+                    enqueue(player, key, cx, cz, style, borderChunk.points);
+                } else {
+                    cacheMisses += 1;
+                    snapshots.add(world.getChunkAt(cx, cz).getChunkSnapshot(true, false, false));
+                }
+            }
+        }
+        if (snapshots.isEmpty()) return;
+        final long stamp = changeCounter;
+        final int maxY = world.getMaxHeight() - 1;
+        final UUID uuid = player.getUniqueId();
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+                final List<BorderChunk> results = new ArrayList<>(snapshots.size());
+                for (ChunkSnapshot snapshot : snapshots) {
+                    results.add(new BorderChunk(startY, stamp, now, computePoints(snapshot, area, startY, maxY)));
+                }
+                Bukkit.getScheduler().runTask(plugin, () -> {
+                        LongObjectMap<BorderChunk> chunks2 = cache.get(key);
+                        Player player2 = Bukkit.getPlayer(uuid);
+                        for (int i = 0; i < results.size(); i += 1) {
+                            ChunkSnapshot snapshot = snapshots.get(i);
+                            BorderChunk result = results.get(i);
+                            if (chunks2 != null) chunks2.put(LongObjectMap.pack(snapshot.getX(), snapshot.getZ()), result);
+                            if (player2 != null) enqueue(player2, key, snapshot.getX(), snapshot.getZ(), style, result.points);
+                        }
+                    });
+            });
+    }
+
+    private boolean isValid(BorderChunk borderChunk, World world, int cx, int cz, int startY, long now) {
+        if (borderChunk.startY != startY) return false;
+        if (now - borderChunk.created > CACHE_MILLIS) return false;
+        LongObjectMap<long[]> stamps = changeStamps.get(world);
+        if (stamps == null) return true;
+        long[] changed = stamps.get(LongObjectMap.pack(cx, cz));
+        return changed == null || changed[0] <= borderChunk.stamp;
+    }
+
+    /**
+     * Find the border columns in one chunk.  Runs asynchronously.
+     */
+    private static int[] computePoints(ChunkSnapshot snapshot, Area area, int startY, int maxY) {
+        final int ax = snapshot.getX() << 4;
+        final int az = snapshot.getZ() << 4;
+        final int bx = ax + 15;
+        final int bz = az + 15;
+        int[] points = new int[64 * 4];
+        int count = 0;
+        for (int side = 0; side < 4; side += 1) {
+            final BlockFace face;
+            final int fromX;
+            final int toX;
+            final int fromZ;
+            final int toZ;
+            switch (side) {
+            case 0:
+                face = BlockFace.NORTH;
+                fromX = area.ax; toX = area.bx; fromZ = area.ay; toZ = area.ay;
+                break;
+            case 1:
+                face = BlockFace.SOUTH;
+                fromX = area.ax; toX = area.bx; fromZ = area.by; toZ = area.by;
+                break;
+            case 2:
+                face = BlockFace.WEST;
+                fromX = area.ax; toX = area.ax; fromZ = area.ay; toZ = area.by;
+                break;
+            default:
+                face = BlockFace.EAST;
+                fromX = area.bx; toX = area.bx; fromZ = area.ay; toZ = area.by;
+                break;
+            }
+            for (int z = Math.max(az, fromZ); z <= Math.min(bz, toZ); z += 1) {
+                for (int x = Math.max(ax, fromX); x <= Math.min(bx, toX); x += 1) {
+                    if (count + 4 > points.length) points = Arrays.copyOf(points, points.length * 2);
+                    points[count] = x;
+                    points[count + 1] = findSurface(snapshot, x & 15, startY, z & 15, maxY);
+                    points[count + 2] = z;
+                    points[count + 3] = face.ordinal();
+                    count += 4;
+                }
+            }
+        }
+        return Arrays.copyOf(points, count);
+    }
+
+    /**
+     * Walk down to the ground, then up to the first empty block.
+     * Everything above the heightmap is empty, so a start above it
+     * can be moved down right away.
+     */
+    private static int findSurface(ChunkSnapshot snapshot, int x, int y, int z, int maxY) {
+        final int top = snapshot.getHighestBlockYAt(x, z);
+        if (y > top + 1) y = top + 1;
+        while (y > MIN_Y && isEmpty(snapshot, x, y, z, maxY)) y -= 1;
+        while (y < MAX_Y && !isEmpty(snapshot, x, y, z, maxY)) y += 1;
+        return y;
+    }
+
+    private static boolean isEmpty(ChunkSnapshot snapshot, int x, int y, int z, int maxY) {
+        return y > maxY || snapshot.getBlockType(x, y, z).isAir();
+    }
+
+    private void enqueue(Player player, BorderKey border, int cx, int cz, Style style, int[] points) {
+        if (points.length == 0) return;
+        Map<PendingKey, Pending> queue = queues.computeIfAbsent(player.getUniqueId(), u -> new LinkedHashMap<>());
+        Pending old = queue.put(new PendingKey(border, LongObjectMap.pack(cx, cz)),
+                                new Pending(border.getWorld(), style, points, (cx << 4) + 8, (cz << 4) + 8));
+        if (old != null) deduplicated += 1;
+    }
+
+    /**
+     * Drain each player's queue nearest first.  Entries in another
+     * world, or beyond the queue limit, are dropped.
+     */
+    private void tick() {
+        if (queues.isEmpty()) return;
+        for (Iterator<Map.Entry<UUID, Map<PendingKey, Pending>>> iter = queues.entrySet().iterator(); iter.hasNext();) {
+            Map.Entry<UUID, Map<PendingKey, Pending>> entry = iter.next();
+            Player player = Bukkit.getPlayer(entry.getKey());
+            Map<PendingKey, Pending> queue = entry.getValue();
+            if (player == null) {
+                for (Pending pending : queue.values()) dropped += pending.remainingPackets();
+                iter.remove();
+                continue;
+            }
+            final World world = player.getWorld();
+            final Location location = player.getLocation();
+            final int px = location.getBlockX();
+            final int pz = location.getBlockZ();
+            for (Iterator<Pending> iter2 = queue.values().iterator(); iter2.hasNext();) {
+                Pending pending = iter2.next();
+                if (pending.world != world) {
+                    dropped += pending.remainingPackets();
+                    iter2.remove();
+                    continue;
+                }
+                long dx = pending.centerX - px;
+                long dz = pending.centerZ - pz;
+                pending.distance = dx * dx + dz * dz;
+                sortBuffer.add(pending);
+            }
+            sortBuffer.sort((a, b) -> Long.compare(a.distance, b.distance));
+            int budget = packetsPerTick;
+            int queued = 0;
+            for (Pending pending : sortBuffer) {
+                while (budget >= pending.style.packets && pending.index < pending.points.length) {
+                    int[] p = pending.points;
+                    int i = pending.index;
+                    emit(player, pending.style, p[i], p[i + 1], p[i + 2], FACES[p[i + 3]]);
+                    pending.index += 4;
+                    budget -= pending.style.packets;
+                }
+                queued += pending.remainingPackets();
+                if (queued > maxQueuedPackets) {
+                    dropped += pending.remainingPackets();
+                    pending.index = pending.points.length;
+                }
+            }
+            sortBuffer.clear();
+            queue.values().removeIf(pending -> pending.index >= pending.points.length);
+            if (queue.isEmpty()) iter.remove();
+        }
+    }
+
+    private void emit(Player player, Style style, int x, int y, int z, BlockFace face) {
+        emitted += style.packets;
+        if (style == Style.CLAIM) {
+            player.spawnParticle(Particle.BLOCK_MARKER, x + 0.5, y + 0.5, z + 0.5, 1, 0.0, 0.0, 0.0, 0.0, barrier);
+            return;
+        }
+        BlockFace move;
+        double dx;
+        double dz;
+        switch (face) {
+        case NORTH: dx = 0; dz = 0; move = BlockFace.EAST; break;
+        case EAST: dx = 1; dz = 0; move = BlockFace.SOUTH; break;
+        case SOUTH: dx = 1; dz = 1; move = BlockFace.WEST; break;
+        case WEST: dx = 0; dz = 1; move = BlockFace.NORTH; break;
+        default: dx = 0; dz = 0; move = BlockFace.UP; break;
+        }
+        player.spawnParticle(Particle.END_ROD, x + dx, y + 0.125, z + dz, 1, 0.0, 0.0, 0.0, 0.0);
+        dx += move.getModX() * 0.5;
+        dz += move.getModZ() * 0.5;
+        player.spawnParticle(Particle.END_ROD, x + dx, y + 0.125, z + dz, 1, 0.0, 0.0, 0.0, 0.0);
+    }
+
+    private void markChanged(Block block) {
+        LongObjectMap<long[]> stamps = changeStamps.get(block.getWorld());
+        if (stamps == null) {
+            stamps = new LongObjectMap<>();
+            changeStamps.put(block.getWorld(), stamps);
+        }
+        final long key = LongObjectMap.pack(block.getX() >> 4, block.getZ() >> 4);
+        long[] changed = stamps.get(key);
+        if (changed == null) {
+            if (stamps.size() >= MAX_CHANGE_STAMPS) {
+                // Forgetting stamps could revive stale entries
+                stamps.clear();
+                cache.clear();
+            }
+            changed = new long[1];
+            stamps.put(key, changed);
+        }
+        changeCounter += 1;
+        changed[0] = changeCounter;
+    }
+
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
+    protected void onBlockPlace(BlockPlaceEvent event) {
+        markChanged(event.getBlock());
+    }
+
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
+    protected void onBlockBreak(BlockBreakEvent event) {
+        markChanged(event.getBlock());
+    }
+
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
+    protected void onBlockFromTo(BlockFromToEvent event) {
+        markChanged(event.getToBlock());
+    }
+
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
+    protected void onBlockExplode(BlockExplodeEvent event) {
+        for (Block block : event.blockList()) markChanged(block);
+    }
+
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
+    protected void onEntityExplode(EntityExplodeEvent event) {
+        for (Block block : event.blockList()) markChanged(block);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    protected void onWorldUnload(WorldUnloadEvent event) {
+        changeStamps.remove(event.getWorld());
+        cache.keySet().removeIf(key -> key.getWorld() == event.getWorld());
+    }
+
+    public int cacheSize() {
+        return cache.size();
+    }
+}
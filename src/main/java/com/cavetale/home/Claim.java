@@ -1,6 +1,5 @@
 package com.cavetale.home;
 
-import com.cavetale.core.perm.Perm;
 import com.cavetale.core.playercache.PlayerCache;
 import com.cavetale.core.util.Json;
 import com.cavetale.home.sql.SQLClaim;
@@ -8,8 +7,9 @@ import com.cavetale.home.sql.SQLClaimTrust;
 import com.cavetale.home.struct.BlockVector;
 import com.cavetale.home.struct.Vec2i;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
-import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -19,6 +19,7 @@ import java.util.function.Consumer;
 import java.util.function.Predicate;
 import lombok.Getter;
 import lombok.Setter;
+import net.kyori.adventure.text.Component;
 import org.bukkit.Chunk;
 import org.bukkit.Location;
 import org.bukkit.World;
@@ -33,13 +34,46 @@ public final class Claim {
 
     @Getter private SQLClaim row;
     @Getter private Area area;
-    private final Map<ClaimSetting, Boolean> settings = new EnumMap<>(ClaimSetting.class);
+    /** One bit per ClaimSetting, defaults included. */
+    private long settings = ClaimSetting.DEFAULT_BITS;
+    /** Derived from the settings whenever they change. */
+    private TrustType publicTrust = TrustType.NONE;
     @Getter private int centerX;
     @Getter private int centerY;
 
     @Getter private final Map<UUID, SQLClaimTrust> trusted = new HashMap<>();
-    @Getter private final List<Subclaim> subclaims = new ArrayList<>();
+    private final List<Subclaim> subclaims = new ArrayList<>();
+    private final List<Subclaim> subclaimsView = Collections.unmodifiableList(subclaims);
+    private final SubclaimIndex subclaimIndex = new SubclaimIndex();
     @Setter private boolean deleted;
+    /**
+     * Bumped whenever the trust of any player in this claim or its
+     * subclaims may have changed.
+     */
+    @Getter private int trustEpoch;
+    private final Map<UUID, CachedTrust> trustCache = new HashMap<>();
+    protected static final int MAX_TRUST_CACHE = 256;
+    /**
+     * The rendered HUD line for each trust class, see Session.
+     * Cleared along with hudEpoch whenever the displayed name may
+     * have changed.
+     */
+    protected final Component[] hudLines = new Component[3];
+    @Getter private int hudEpoch;
+
+    /**
+     * The effective trust of one player, valid as long as both
+     * epochs match.
+     */
+    protected static final class CachedTrust {
+        protected TrustType trustType;
+        protected int claimEpoch;
+        protected int globalEpoch;
+
+        protected boolean isValid(int claimEpochNow, int globalEpochNow) {
+            return claimEpoch == claimEpochNow && globalEpoch == globalEpochNow;
+        }
+    }
 
     /**
      * Existing claim constructor.
@@ -61,17 +95,15 @@ public final class Claim {
         this.area = area;
         this.centerX = area.centerX();
         this.centerY = area.centerY();
-        for (ClaimSetting setting : ClaimSetting.values()) {
-            settings.put(setting, setting.defaultValue);
-        }
+        settings = ClaimSetting.DEFAULT_BITS;
+        updatePublicTrust();
         row.setSettings(serializeSettings());
     }
 
     private String serializeSettings() {
         Map<String, Object> settingsMap = new LinkedHashMap<>();
-        for (Map.Entry<ClaimSetting, Boolean> entry : settings.entrySet()) {
-            ClaimSetting setting = entry.getKey();
-            boolean value = entry.getValue();
+        for (ClaimSetting setting : ClaimSetting.values()) {
+            boolean value = getSetting(setting);
             if (value == setting.defaultValue) continue;
             settingsMap.put(setting.key, value);
         }
@@ -83,12 +115,14 @@ public final class Claim {
         this.area = row.getArea();
         @SuppressWarnings("unchecked")
         Map<String, Object> settingsMap = (Map<String, Object>) Json.deserialize(row.getSettings(), Map.class);
-        settings.clear();
+        long bits = ClaimSetting.DEFAULT_BITS;
         for (ClaimSetting setting : ClaimSetting.values()) {
             if (settingsMap.get(setting.key) instanceof Boolean value) {
-                settings.put(setting, value != null ? value : setting.defaultValue);
+                bits = value ? (bits | setting.bit) : (bits & ~setting.bit);
             }
         }
+        settings = bits;
+        updatePublicTrust();
         if (settingsMap.get("center") instanceof List list
             && list.size() == 2
             && list.get(0) instanceof Number x
@@ -108,11 +142,17 @@ public final class Claim {
         }
         row = newRow;
         loadSQLRow();
+        invalidateHud();
+        // The settings may have changed without setSetting
+        plugin.claimCache.updateSettings(this);
     }
 
     public void insertIntoDatabase(Consumer<Boolean> callback) {
         plugin.db.insertAsync(row, res -> {
-                if (res != 0) broadcastClaimUpdate(this);
+                if (res != 0) {
+                    if (!deleted) plugin.claimCache.updateId(this);
+                    broadcastClaimUpdate(this);
+                }
                 callback.accept(res != 0);
             });
     }
@@ -126,7 +166,11 @@ public final class Claim {
     }
 
     public void setOwner(UUID uuid) {
+        UUID oldOwner = row.getOwner();
         row.setOwner(uuid);
+        bumpTrustEpoch();
+        invalidateHud();
+        plugin.claimCache.updateOwner(this, oldOwner);
         plugin.db.saveAsync(row, res -> broadcastClaimUpdate(this), "owner");
     }
 
@@ -150,6 +194,7 @@ public final class Claim {
 
     public void setName(String name) {
         row.setName(name);
+        invalidateHud();
         plugin.db.updateAsync(row, res -> broadcastClaimUpdate(this), "name");
     }
 
@@ -171,31 +216,76 @@ public final class Claim {
     }
 
     public boolean getSetting(ClaimSetting setting) {
-        return settings.getOrDefault(setting, setting.defaultValue);
+        return (settings & setting.bit) != 0L;
     }
 
     public void setSetting(ClaimSetting setting, boolean value) {
         if (getSetting(setting) == value) return;
-        settings.put(setting, value);
+        settings = value ? (settings | setting.bit) : (settings & ~setting.bit);
+        updatePublicTrust();
+        bumpTrustEpoch();
+        plugin.claimCache.updatePublic(this);
+        plugin.claimCache.updateSettings(this);
         row.setSettings(serializeSettings());
         plugin.db.updateAsync(row, res -> broadcastClaimUpdate(this), "settings");
     }
 
     public static boolean ownsAdminClaims(Player player) {
-        return player.hasPermission("home.adminclaims");
+        return player.hasPermission(HomePlugin.HOME_ADMINCLAIMS_PERM);
     }
 
     public TrustType getPublicTrust() {
-        if (getSetting(ClaimSetting.PUBLIC)) return TrustType.BUILD;
-        if (getSetting(ClaimSetting.PUBLIC_CONTAINER)) return TrustType.CONTAINER;
-        if (getSetting(ClaimSetting.PUBLIC_INVITE)) return TrustType.INTERACT;
-        return TrustType.NONE;
+        return publicTrust;
+    }
+
+    private void updatePublicTrust() {
+        if (getSetting(ClaimSetting.PUBLIC)) {
+            publicTrust = TrustType.BUILD;
+        } else if (getSetting(ClaimSetting.PUBLIC_CONTAINER)) {
+            publicTrust = TrustType.CONTAINER;
+        } else if (getSetting(ClaimSetting.PUBLIC_INVITE)) {
+            publicTrust = TrustType.INTERACT;
+        } else {
+            publicTrust = TrustType.NONE;
+        }
+    }
+
+    /**
+     * Invalidate the cached trust of all players in this claim.
+     */
+    public void bumpTrustEpoch() {
+        trustEpoch += 1;
+    }
+
+    /**
+     * Drop the rendered HUD lines, which must happen when the name or
+     * owner changes.
+     */
+    private void invalidateHud() {
+        Arrays.fill(hudLines, null);
+        hudEpoch += 1;
     }
 
     public TrustType getTrustType(UUID uuid) {
+        CachedTrust cached = trustCache.get(uuid);
+        if (cached != null && cached.isValid(trustEpoch, plugin.trustEpoch)) {
+            return cached.trustType;
+        }
+        if (cached == null) {
+            if (trustCache.size() >= MAX_TRUST_CACHE) trustCache.clear();
+            cached = new CachedTrust();
+            trustCache.put(uuid, cached);
+        }
+        cached.trustType = computeTrustType(uuid);
+        cached.claimEpoch = trustEpoch;
+        cached.globalEpoch = plugin.trustEpoch;
+        return cached.trustType;
+    }
+
+    private TrustType computeTrustType(UUID uuid) {
         if (plugin.doesIgnoreClaims(uuid)) return TrustType.OWNER;
         if (getOwner().equals(uuid)) return TrustType.OWNER;
-        if (isAdminClaim() && Perm.get().has(uuid, "home.adminclaims")) return TrustType.OWNER;
+        if (isAdminClaim() && plugin.ownsAdminClaims(uuid)) return TrustType.OWNER;
         SQLClaimTrust entry = trusted.get(uuid);
         TrustType playerTrustType = entry != null ? entry.parseTrustType() : TrustType.NONE;
         if (playerTrustType.isBan()) return playerTrustType;
@@ -216,6 +306,8 @@ public final class Claim {
         }
         SQLClaimTrust newRow = new SQLClaimTrust(this, trustType, uuid);
         trusted.put(uuid, newRow);
+        bumpTrustEpoch();
+        plugin.claimCache.addTrustee(this, uuid);
         plugin.getDb().insertAsync(newRow, res -> plugin.getConnectListener().broadcastClaimUpdate(this));
         return true;
     }
@@ -224,26 +316,25 @@ public final class Claim {
         SQLClaimTrust oldRow = trusted.get(uuid);
         if (oldRow == null) return false;
         trusted.remove(uuid);
+        bumpTrustEpoch();
+        plugin.claimCache.removeTrustee(this, uuid);
         plugin.getDb().deleteAsync(oldRow, res -> plugin.getConnectListener().broadcastClaimUpdate(this));
         return true;
     }
 
     public TrustType getTrustType(UUID uuid, BlockVector vec) {
-        TrustType claimTrustType = getTrustType(uuid);
-        if (claimTrustType.isBan()) return TrustType.BAN;
-        if (claimTrustType.isCoOwner()) return claimTrustType;
-        Subclaim subclaim = getSubclaimAt(vec);
-        if (subclaim == null) return claimTrustType;
-        return getSetting(ClaimSetting.INHERITANCE)
-            ? claimTrustType.max(subclaim.getTrustType(uuid))
-            : subclaim.getTrustType(uuid);
+        return getTrustType(uuid, vec.world, vec.x, vec.z);
     }
 
     public TrustType getTrustType(UUID uuid, Block block) {
+        return getTrustType(uuid, block.getWorld().getName(), block.getX(), block.getZ());
+    }
+
+    public TrustType getTrustType(UUID uuid, String inWorld, int x, int z) {
         TrustType claimTrustType = getTrustType(uuid);
         if (claimTrustType.isBan()) return TrustType.BAN;
         if (claimTrustType.isCoOwner()) return claimTrustType;
-        Subclaim subclaim = getSubclaimAt(block);
+        Subclaim subclaim = getSubclaimAt(inWorld, x, z);
         if (subclaim == null) return claimTrustType;
         return getSetting(ClaimSetting.INHERITANCE)
             ? claimTrustType.max(subclaim.getTrustType(uuid))
@@ -297,9 +388,8 @@ public final class Claim {
     }
 
     public boolean contains(Location location) {
-        String lwn = location.getWorld().getName();
-        if (!getWorld().equals(lwn) && !getWorld().equals(plugin.getMirrorWorlds().get(lwn))) return false;
-        return area.contains(location.getBlockX(), location.getBlockZ());
+        if (!area.contains(location.getBlockX(), location.getBlockZ())) return false;
+        return getWorld().equals(plugin.getWorldHandle(location.getWorld()).getClaimWorld());
     }
 
     public boolean isHidden() {
@@ -313,16 +403,24 @@ public final class Claim {
         return null;
     }
 
+    /**
+     * Get all subclaims.  The result must not be modified; use
+     * addSubclaim(), removeSubclaim(), or clearSubclaims() instead.
+     */
+    public List<Subclaim> getSubclaims() {
+        return subclaimsView;
+    }
+
     public List<Subclaim> getSubclaims(World inWorld) {
         return getSubclaims(inWorld.getName());
     }
 
+    /**
+     * Get the subclaims in one world.  The result must not be
+     * modified.
+     */
     public List<Subclaim> getSubclaims(String inWorld) {
-        List<Subclaim> list = new ArrayList<>();
-        for (Subclaim subclaim : subclaims) {
-            if (subclaim.getWorld().equals(inWorld)) list.add(subclaim);
-        }
-        return list;
+        return subclaimIndex.inWorld(subclaims, inWorld);
     }
 
     public Subclaim getSubclaimAt(Location loc) {
@@ -338,24 +436,32 @@ public final class Claim {
     }
 
     public Subclaim getSubclaimAt(String inWorld, int x, int z) {
-        for (Subclaim subclaim : subclaims) {
-            if (!subclaim.getWorld().equals(inWorld)) continue;
-            if (subclaim.getArea().contains(x, z)) return subclaim;
-        }
-        return null;
+        return subclaimIndex.at(subclaims, inWorld, x, z);
+    }
+
+    public void addSubclaim(Subclaim subclaim) {
+        subclaims.add(subclaim);
+        subclaimIndex.invalidate();
+        bumpTrustEpoch();
     }
 
     public boolean removeSubclaim(Subclaim subclaim) {
+        bumpTrustEpoch();
+        subclaimIndex.invalidate();
         return subclaims.remove(subclaim);
     }
 
+    public void clearSubclaims() {
+        subclaims.clear();
+        subclaimIndex.invalidate();
+        bumpTrustEpoch();
+    }
+
     public ClaimOperationResult growTo(int x, int z) {
         Area newArea = area.growTo(x, z);
         if (getBlocks() < newArea.size()) return ClaimOperationResult.INSUFFICIENT_BLOCKS;
-        for (Claim other : plugin.findClaimsInWorld(getWorld())) {
-            if (other != this && other.getArea().overlaps(newArea)) {
-                return ClaimOperationResult.OVERLAP;
-            }
+        if (!plugin.claimCache.findConflicts(getWorld(), newArea, this, 0).isEmpty()) {
+            return ClaimOperationResult.OVERLAP;
         }
         setArea(newArea);
         return ClaimOperationResult.SUCCESS;
@@ -196,8 +196,18 @@ public final class ClaimAdminCommand extends AbstractCommand<HomePlugin> {
                          : text("-" + setting.name().toLowerCase(), RED));
         }
         sender.sendMessage(textOfChildren(text("Settings ", AQUA), join(separator(space()), settings)));
+        int subclaimTrustCount = 0;
+        long subclaimTrustBytes = 0L;
+        for (Subclaim subclaim : claim.getSubclaims()) {
+            subclaimTrustCount += subclaim.getTrustCount();
+            subclaimTrustBytes += subclaim.estimateTrustBytes();
+        }
         sender.sendMessage(textOfChildren(text("Subclaims ", AQUA),
-                                          text(claim.getSubclaims().size(), WHITE)));
+                                          text(claim.getSubclaims().size(), WHITE),
+                                          text(" trusted ", AQUA),
+                                          text(subclaimTrustCount, WHITE),
+                                          text(" memory ", AQUA),
+                                          text(subclaimTrustBytes + "B", WHITE)));
         for (SQLClaimTrust row : claim.getTrusted().values()) {
             sender.sendMessage(textOfChildren(text("+ ", AQUA),
                                               text(row.parseTrustType().displayName, WHITE),
@@ -306,10 +316,9 @@ public final class ClaimAdminCommand extends AbstractCommand<HomePlugin> {
         final String w = plugin.mirrorWorlds.getOrDefault(playerWorld, playerWorld);
         Area area = new Area(loc.getBlockX() - 31, loc.getBlockZ() - 31,
                              loc.getBlockX() + 32, loc.getBlockZ() + 32);
-        for (Claim other : plugin.getClaimCache().within(w, area)) {
-            if (other.getArea().overlaps(area)) {
-                throw new CommandWarn("This claim would overlap an existing claim owned by " + other.getOwnerName());
-            }
+        List<Claim> conflicts = plugin.getClaimCache().findConflicts(w, area, null, 0);
+        if (!conflicts.isEmpty()) {
+            throw new CommandWarn("This claim would overlap an existing claim owned by " + conflicts.get(0).getOwnerName());
         }
         Claim claim = new Claim(plugin, Claim.ADMIN_ID, w, area);
         plugin.getClaimCache().add(claim);
@@ -390,6 +399,7 @@ public final class ClaimAdminCommand extends AbstractCommand<HomePlugin> {
             // Convert from->to
             SQLClaimTrust fromTrust = claim.getTrusted().remove(from.uuid);
             if (fromTrust != null) {
+                plugin.claimCache.removeTrustee(claim, from.uuid);
                 // Remove `to` to avoid duplicates
                 SQLClaimTrust toTrust = claim.getTrusted().remove(to.uuid);
                 if (toTrust != null) {
@@ -398,6 +408,8 @@ public final class ClaimAdminCommand extends AbstractCommand<HomePlugin> {
                 }
                 fromTrust.setTrustee(to.uuid);
                 claim.getTrusted().put(to.uuid, fromTrust);
+                claim.bumpTrustEpoch();
+                plugin.claimCache.addTrustee(claim, to.uuid);
                 plugin.db.update(fromTrust);
                 total += 1;
                 trustCount += 1;
@@ -225,11 +225,9 @@ public final class ClaimCommand extends AbstractCommand<HomePlugin> {
         final int rad = claimSize / 2;
         final int tol = (rad * 2 == claimSize) ? 1 : 0;
         Area area = new Area(x - rad + tol, y - rad + tol, x + rad, y + rad);
-        for (Claim claimInWorld : plugin.findClaimsInWorld(playerWorldName)) {
-            // This whole check is repeated in the confirm command
-            if (claimInWorld.getArea().overlaps(area)) {
-                throw new CommandWarn("Your claim would overlap an existing claim.");
-            }
+        // This check is repeated in the confirm command
+        if (!plugin.getClaimCache().findConflicts(playerWorldName, area, null, 0).isEmpty()) {
+            throw new CommandWarn("Your claim would overlap an existing claim.");
         }
         NewClaimMeta ncmeta = new NewClaimMeta(playerWorldName, x, y, area, claimCost, ""
                                                + ThreadLocalRandom.current().nextInt(9999));
@@ -446,11 +444,9 @@ public final class ClaimCommand extends AbstractCommand<HomePlugin> {
             plugin.removeMetadata(player, plugin.META_NEWCLAIM);
             if (!args[0].equals(ncmeta.token)) return true;
             if (!plugin.isLocalHomeWorld(ncmeta.world)) return true;
-            for (Claim claimInWorld : plugin.findClaimsInWorld(ncmeta.world)) {
-                // This whole check is a repeat from the new claim command.
-                if (claimInWorld.getArea().overlaps(ncmeta.area)) {
-                    throw new CommandWarn("Your claim would overlap an existing claim.");
-                }
+            // This check is a repeat from the new claim command.
+            if (!plugin.getClaimCache().findConflicts(ncmeta.world, ncmeta.area, null, 0).isEmpty()) {
+                throw new CommandWarn("Your claim would overlap an existing claim.");
             }
             if (ncmeta.price >= 0.01) {
                 if (!Money.get().take(uuid, ncmeta.price, plugin,
@@ -659,8 +655,8 @@ public final class ClaimCommand extends AbstractCommand<HomePlugin> {
             plugin.sessions.of(player).setClaimGrowSnippet(snippet);
             return true;
         }
-        for (Claim other : plugin.getClaimCache().within(claim.getWorld(), newArea)) {
-            if (other != claim) throw new CommandWarn("Your claim would overlap with another claim");
+        if (!plugin.getClaimCache().findConflicts(claim.getWorld(), newArea, claim, 0).isEmpty()) {
+            throw new CommandWarn("Your claim would overlap with another claim");
         }
         claim.setArea(newArea);
         player.sendMessage(text("Grew your claim to where you are standing", GREEN));
@@ -848,8 +844,8 @@ public final class ClaimCommand extends AbstractCommand<HomePlugin> {
     private boolean listInvites(Player player, String[] args) {
         if (args.length != 0) return false;
         List<Claim> playerClaims = new ArrayList<>();
-        for (Claim claim : plugin.getClaimCache().getAllClaims()) {
-            if (!claim.isOwner(player) && !claim.isHidden() && claim.getTrustType(player).canBuild()) {
+        for (Claim claim : plugin.findClaims(player.getUniqueId(), TrustType.BUILD)) {
+            if (!claim.isOwner(player) && !claim.isHidden()) {
                 playerClaims.add(claim);
             }
         }
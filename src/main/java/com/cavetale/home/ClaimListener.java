@@ -5,6 +5,8 @@ import com.cavetale.core.event.block.PlayerBreakBlockEvent;
 import com.cavetale.core.event.entity.PlayerEntityAbilityQuery;
 import com.cavetale.core.event.hud.PlayerHudEvent;
 import com.cavetale.core.structure.Structures;
+import com.cavetale.home.claimcache.ClaimCache;
+import com.cavetale.home.claimcache.HomeWorldHandle;
 import com.cavetale.home.struct.BlockVector;
 import com.destroystokyo.paper.event.entity.PreCreatureSpawnEvent;
 import io.papermc.paper.entity.Bucketable;
@@ -16,6 +18,7 @@ import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
 import net.kyori.adventure.text.format.TextColor;
 import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.NamespacedKey;
@@ -72,6 +75,7 @@ import org.bukkit.event.vehicle.VehicleCreateEvent;
 import org.bukkit.event.vehicle.VehicleDamageEvent;
 import org.bukkit.event.vehicle.VehicleDestroyEvent;
 import org.bukkit.event.vehicle.VehicleEntityCollisionEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
 import org.bukkit.inventory.InventoryHolder;
 import org.bukkit.inventory.ItemStack;
 import static com.cavetale.core.util.CamelCase.toCamelCase;
@@ -81,12 +85,26 @@ import static net.kyori.adventure.text.Component.text;
 @RequiredArgsConstructor
 final class ClaimListener implements Listener {
     private final HomePlugin plugin;
+    /** Reused by entity checks, which only run on the main thread. */
+    private final Location scratchLocation = new Location(null, 0.0, 0.0, 0.0);
+    /**
+     * Fluid and piston events decided without looking up the claim
+     * of any destination block, and the rest.
+     */
+    protected long fastPathCount;
+    protected long slowPathCount;
 
     public ClaimListener enable() {
         Bukkit.getPluginManager().registerEvents(this, plugin);
         return this;
     }
 
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkUnload(ChunkUnloadEvent event) {
+        Chunk chunk = event.getChunk();
+        plugin.claimCache.onChunkUnload(plugin.getWorldHandle(chunk.getWorld()), chunk.getX(), chunk.getZ());
+    }
+
     /**
      * Check if a player action is permissible and cancel it if not.
      * If the action is in a world not subject to this plugin, nothing
@@ -95,26 +113,38 @@ final class ClaimListener implements Listener {
      * @return True if the event is permitted, false otherwise.
      */
     public boolean checkPlayerAction(Player player, Block block, TrustType requiredTrust, Cancellable cancellable, boolean notify) {
-        if (plugin.doesIgnoreClaims(player)) return true;
-        if (!plugin.isLocalHomeWorld(block.getWorld())) return true;
-        Claim claim = plugin.getClaimAt(block);
+        return checkPlayerAction(player, block.getWorld(), block.getX(), block.getY(), block.getZ(),
+                                 requiredTrust, cancellable, notify);
+    }
+
+    /**
+     * The allocation free version of the check.  Inside a claim,
+     * nothing is allocated unless the action is denied.  Outside of
+     * claims, actions above INTERACT ask the structure service, which
+     * may allocate.
+     */
+    public boolean checkPlayerAction(Player player, World bukkitWorld, int x, int y, int z,
+                                     TrustType requiredTrust, Cancellable cancellable, boolean notify) {
+        if (plugin.doesIgnoreClaims(player.getUniqueId())) return true;
+        HomeWorldHandle world = plugin.getWorldHandle(bukkitWorld);
+        if (!world.isLocal()) return true;
+        Claim claim = plugin.claimCache.at(world, x, z);
         if (claim == null) {
             if (requiredTrust.gt(TrustType.INTERACT)) {
-                NamespacedKey structureKey = Structures.get().structureKeyAt(block);
+                NamespacedKey structureKey = Structures.get().structureKeyAt(bukkitWorld.getBlockAt(x, y, z));
                 if (structureKey != null) {
                     if (cancellable != null) cancellable.setCancelled(true);
                     if (notify) {
-                        Component msg = text("You cannot modify an unclaimed "
-                                             + toCamelCase(" ", List.of(structureKey.getKey().split("_"))),
-                                             NamedTextColor.RED);
-                        plugin.sessions.of(player).notify(player, msg);
+                        plugin.sessions.of(player).notify(player, () -> text("You cannot modify an unclaimed "
+                                                                             + toCamelCase(" ", List.of(structureKey.getKey().split("_"))),
+                                                                             NamedTextColor.RED));
                     }
                     return false;
                 }
             }
             return true;
         }
-        TrustType trustType = claim.getTrustType(player.getUniqueId(), block);
+        TrustType trustType = claim.getTrustType(player.getUniqueId(), world.getName(), x, z);
         if (trustType.gte(requiredTrust)) return true;
         if (cancellable instanceof PlayerInteractEvent) {
             PlayerInteractEvent pis = (PlayerInteractEvent) cancellable;
@@ -129,7 +159,23 @@ final class ClaimListener implements Listener {
     }
 
     public boolean checkPlayerAction(Player player, Location location, TrustType requiredTrust, Cancellable cancellable, boolean notify) {
-        return checkPlayerAction(player, location.getBlock(), requiredTrust, cancellable, notify);
+        return checkPlayerAction(player, location.getWorld(), location.getBlockX(), location.getBlockY(), location.getBlockZ(),
+                                 requiredTrust, cancellable, notify);
+    }
+
+    /**
+     * Check an action on an entity at its current block.  The
+     * location is copied into a reused instance.
+     */
+    public boolean checkPlayerAction(Player player, Entity entity, TrustType requiredTrust, Cancellable cancellable, boolean notify) {
+        Location location = entity.getLocation(scratchLocation);
+        return checkPlayerAction(player, location.getWorld(), location.getBlockX(), location.getBlockY(), location.getBlockZ(),
+                                 requiredTrust, cancellable, notify);
+    }
+
+    private Claim claimAt(Entity entity) {
+        Location location = entity.getLocation(scratchLocation);
+        return plugin.getClaimAt(location.getWorld(), location.getBlockX(), location.getBlockZ());
     }
 
     /**
@@ -241,7 +287,7 @@ final class ClaimListener implements Listener {
             return;
         } else if (player != null) {
             // Player damaged a non-player
-            boolean claimed = plugin.getClaimAt(damaged.getLocation().getBlock()) != null;
+            boolean claimed = claimAt(damaged) != null;
             TrustType trustType;
             if (claimed && damaged.getType() == EntityType.SHULKER) {
                 // Some extra code for hostile, yet valuable mobs in
@@ -255,13 +301,13 @@ final class ClaimListener implements Listener {
                 // Must be an animal
                 trustType = TrustType.BUILD;
             }
-            checkPlayerAction(player, damaged.getLocation().getBlock(), trustType, event, true);
+            checkPlayerAction(player, damaged, trustType, event, true);
         } else {
             // Non-player damages something
             switch (event.getCause()) {
             case BLOCK_EXPLOSION:
             case ENTITY_EXPLOSION:
-                Claim claim = plugin.getClaimAt(damaged.getLocation().getBlock());
+                Claim claim = claimAt(damaged);
                 if (claim == null) {
                     return;
                 }
@@ -298,7 +344,7 @@ final class ClaimListener implements Listener {
         switch (event.getCause()) {
         case BLOCK_EXPLOSION:
         case ENTITY_EXPLOSION:
-            Claim claim = plugin.getClaimAt(damaged.getLocation().getBlock());
+            Claim claim = claimAt(damaged);
             if (claim == null) {
                 return;
             }
@@ -336,8 +382,7 @@ final class ClaimListener implements Listener {
             // tamed animals
             return;
         }
-        Block block = damaged.getLocation().getBlock();
-        checkPlayerAction(damager, block, TrustType.BUILD, event, melee);
+        checkPlayerAction(damager, damaged, TrustType.BUILD, event, melee);
     }
 
     @EventHandler(ignoreCancelled = true, priority = EventPriority.LOW)
@@ -349,7 +394,7 @@ final class ClaimListener implements Listener {
         boolean melee = player.equals(event.getAttacker());
         if (isOwner(player, vehicle)) return;
         if (plugin.getClaimAt(vehicle.getLocation()) == null) return;
-        checkPlayerAction(player, vehicle.getLocation().getBlock(), TrustType.BUILD, event, melee);
+        checkPlayerAction(player, vehicle, TrustType.BUILD, event, melee);
     }
 
     @EventHandler(ignoreCancelled = true, priority = EventPriority.LOW)
@@ -361,7 +406,7 @@ final class ClaimListener implements Listener {
         boolean melee = player.equals(event.getAttacker());
         if (isOwner(player, vehicle)) return;
         if (plugin.getClaimAt(vehicle.getLocation()) == null) return;
-        checkPlayerAction(player, vehicle.getLocation().getBlock(), TrustType.BUILD, event, melee);
+        checkPlayerAction(player, vehicle, TrustType.BUILD, event, melee);
     }
 
     @EventHandler(ignoreCancelled = true, priority = EventPriority.LOW)
@@ -383,17 +428,17 @@ final class ClaimListener implements Listener {
         if (isOwner(player, entity)) return;
         ItemStack item = player.getInventory().getItemInMainHand();
         if (entity instanceof Animals animals && item != null && animals.isBreedItem(item)) {
-            checkPlayerAction(player, entity.getLocation().getBlock(), TrustType.CONTAINER, event, true);
+            checkPlayerAction(player, entity, TrustType.CONTAINER, event, true);
         } else if (entity instanceof Bucketable && item != null && item.getType() == Material.WATER_BUCKET) {
-            checkPlayerAction(player, entity.getLocation().getBlock(), TrustType.CONTAINER, event, true);
+            checkPlayerAction(player, entity, TrustType.CONTAINER, event, true);
         } else if (entity instanceof RideableMinecart) {
-            checkPlayerAction(player, entity.getLocation().getBlock(), TrustType.INTERACT, event, true);
+            checkPlayerAction(player, entity, TrustType.INTERACT, event, true);
         } else if (entity instanceof Boat) {
-            checkPlayerAction(player, entity.getLocation().getBlock(), TrustType.INTERACT, event, true);
+            checkPlayerAction(player, entity, TrustType.INTERACT, event, true);
         } else if (entity instanceof Villager) {
-            checkPlayerAction(player, entity.getLocation().getBlock(), TrustType.INTERACT, event, true);
+            checkPlayerAction(player, entity, TrustType.INTERACT, event, true);
         } else {
-            checkPlayerAction(player, entity.getLocation().getBlock(), TrustType.BUILD, event, true);
+            checkPlayerAction(player, entity, TrustType.BUILD, event, true);
         }
     }
 
@@ -401,7 +446,7 @@ final class ClaimListener implements Listener {
     public void onPlayerArmorStandManipulate(PlayerArmorStandManipulateEvent event) {
         final Player player = event.getPlayer();
         final Entity entity = event.getRightClicked();
-        checkPlayerAction(player, entity.getLocation().getBlock(), TrustType.BUILD, event, true);
+        checkPlayerAction(player, entity, TrustType.BUILD, event, true);
     }
 
     @EventHandler(ignoreCancelled = true, priority = EventPriority.LOW)
@@ -411,9 +456,9 @@ final class ClaimListener implements Listener {
         final Entity entity = event.getEntity();
         if (isOwner(player, entity)) return;
         if (entity.getType() == EntityType.SHEEP) {
-            checkPlayerAction(player, entity.getLocation().getBlock(), TrustType.CONTAINER, event, true);
+            checkPlayerAction(player, entity, TrustType.CONTAINER, event, true);
         } else {
-            checkPlayerAction(player, entity.getLocation().getBlock(), TrustType.BUILD, event, true);
+            checkPlayerAction(player, entity, TrustType.BUILD, event, true);
         }
     }
 
@@ -425,7 +470,7 @@ final class ClaimListener implements Listener {
         final Entity mount = event.getMount();
         if (!(mount instanceof Animals)) return; // quick and dirty chair fix
         if (isOwner(player, mount)) return;
-        checkPlayerAction(player, mount.getLocation().getBlock(), TrustType.INTERACT, event, true);
+        checkPlayerAction(player, mount, TrustType.INTERACT, event, true);
     }
 
     @EventHandler(ignoreCancelled = true, priority = EventPriority.LOW)
@@ -434,7 +479,7 @@ final class ClaimListener implements Listener {
         if (plugin.doesIgnoreClaims(player)) return;
         final Entity entity = event.getEntity();
         if (isOwner(player, entity)) return;
-        checkPlayerAction(player, entity.getLocation().getBlock(), TrustType.BUILD, event, true);
+        checkPlayerAction(player, entity, TrustType.BUILD, event, true);
     }
 
     @EventHandler(ignoreCancelled = true, priority = EventPriority.LOW)
@@ -549,7 +594,7 @@ final class ClaimListener implements Listener {
     public void onHangingBreak(HangingBreakEvent event) {
         if (!plugin.isLocalHomeWorld(event.getEntity().getWorld())) return;
         if (event.getCause() == HangingBreakEvent.RemoveCause.EXPLOSION) {
-            Claim claim = plugin.getClaimAt(event.getEntity().getLocation().getBlock());
+            Claim claim = claimAt(event.getEntity());
             if (claim == null || !claim.getSetting(ClaimSetting.EXPLOSIONS)) {
                 event.setCancelled(true);
             }
@@ -558,8 +603,7 @@ final class ClaimListener implements Listener {
 
     @EventHandler(ignoreCancelled = true, priority = EventPriority.LOW)
     public void onHangingPlace(HangingPlaceEvent event) {
-        Block block = event.getEntity().getLocation().getBlock();
-        checkPlayerAction(event.getPlayer(), block, TrustType.BUILD, null, true);
+        checkPlayerAction(event.getPlayer(), event.getEntity(), TrustType.BUILD, null, true);
     }
 
     @EventHandler(ignoreCancelled = true, priority = EventPriority.LOW)
@@ -567,11 +611,10 @@ final class ClaimListener implements Listener {
         Player player = getPlayerDamager(event.getRemover());
         if (player != null) {
             boolean melee = player.equals(event.getRemover());
-            Block block = event.getEntity().getLocation().getBlock();
-            checkPlayerAction(player, block, TrustType.BUILD, event, melee);
+            checkPlayerAction(player, event.getEntity(), TrustType.BUILD, event, melee);
         }
         if (event.getCause() == HangingBreakEvent.RemoveCause.EXPLOSION) {
-            Claim claim = plugin.getClaimAt(event.getEntity().getLocation().getBlock());
+            Claim claim = claimAt(event.getEntity());
             if (claim == null || !claim.getSetting(ClaimSetting.EXPLOSIONS)) {
                 event.setCancelled(true);
             }
@@ -591,8 +634,20 @@ final class ClaimListener implements Listener {
     @EventHandler(ignoreCancelled = true, priority = EventPriority.LOW)
     public void onEntityExplode(EntityExplodeEvent event) {
         if (!plugin.isLocalHomeWorld(event.getEntity().getWorld())) return;
-        for (Iterator<Block> iter = event.blockList().iterator(); iter.hasNext();) {
-            Claim claim = plugin.getClaimAt(iter.next());
+        removeUnexplodable(event.getEntity().getWorld(), event.blockList());
+    }
+
+    /**
+     * Remove all blocks from an explosion block list which are not
+     * in a claim allowing explosions.
+     */
+    private void removeUnexplodable(World world, List<Block> blockList) {
+        if (blockList.isEmpty()) return;
+        Claim[] claims = plugin.getClaimsAt(world, blockList);
+        int i = 0;
+        for (Iterator<Block> iter = blockList.iterator(); iter.hasNext(); i += 1) {
+            iter.next();
+            Claim claim = claims[i];
             if (claim == null || !claim.getSetting(ClaimSetting.EXPLOSIONS)) {
                 iter.remove();
             }
@@ -607,12 +662,7 @@ final class ClaimListener implements Listener {
             event.setCancelled(true);
             return;
         }
-        for (Iterator<Block> iter = event.blockList().iterator(); iter.hasNext();) {
-            claim = plugin.getClaimAt(iter.next());
-            if (claim == null || !claim.getSetting(ClaimSetting.EXPLOSIONS)) {
-                iter.remove();
-            }
-        }
+        removeUnexplodable(event.getBlock().getWorld(), event.blockList());
     }
 
     @EventHandler(ignoreCancelled = true, priority = EventPriority.LOW)
@@ -675,43 +725,61 @@ final class ClaimListener implements Listener {
         }
     }
 
-    @EventHandler(ignoreCancelled = true, priority = EventPriority.LOW)
-    public void onBlockPistonExtend(BlockPistonExtendEvent event) {
-        if (!plugin.isLocalHomeWorld(event.getBlock().getWorld())) return;
-        // Piston movement is not allowed:
-        // - Outside claims
-        // - Crossing claim borders
-        Claim claim = plugin.getClaimAt(event.getBlock());
+    /**
+     * Piston movement is not allowed:
+     * - Outside claims
+     * - Crossing claim borders
+     * A moved block outside the piston's claim area is in another
+     * claim or none.  One inside it only needs a lookup if the claim
+     * overlaps another claim.
+     */
+    private boolean checkPistonMove(Block piston, List<Block> blocks) {
+        HomeWorldHandle world = plugin.getWorldHandle(piston.getWorld());
+        if (!world.isLocal()) return true;
+        Claim claim = plugin.claimCache.at(world, piston.getX(), piston.getZ());
         if (claim == null) {
-            event.setCancelled(true);
-            return;
+            fastPathCount += 1;
+            return false;
         }
-        for (Block block : event.getBlocks()) {
-            Claim claim2 = plugin.getClaimAt(block);
-            if (claim != claim2) {
-                event.setCancelled(true);
-                return;
+        final Area area = claim.getArea();
+        boolean exclusive = true;
+        boolean slow = false;
+        boolean result = true;
+        for (int i = 0; i < blocks.size(); i += 1) {
+            Block block = blocks.get(i);
+            final int x = block.getX();
+            final int z = block.getZ();
+            if (!area.contains(x, z)) {
+                result = false;
+                break;
+            }
+            if (i == 0) exclusive = plugin.claimCache.isExclusive(world, claim);
+            if (exclusive) continue;
+            slow = true;
+            if (plugin.claimCache.at(world, x, z) != claim) {
+                result = false;
+                break;
             }
         }
+        if (slow) {
+            slowPathCount += 1;
+        } else {
+            fastPathCount += 1;
+        }
+        return result;
     }
 
     @EventHandler(ignoreCancelled = true, priority = EventPriority.LOW)
-    public void onBlockPistonRetract(BlockPistonRetractEvent event) {
-        if (!plugin.isLocalHomeWorld(event.getBlock().getWorld())) return;
-        // Piston movement is not allowed:
-        // - Outside claims
-        // - Crossing claim borders
-        Claim claim = plugin.getClaimAt(event.getBlock());
-        if (claim == null) {
+    public void onBlockPistonExtend(BlockPistonExtendEvent event) {
+        if (!checkPistonMove(event.getBlock(), event.getBlocks())) {
             event.setCancelled(true);
-            return;
         }
-        for (Block block : event.getBlocks()) {
-            Claim claim2 = plugin.getClaimAt(block);
-            if (claim != claim2) {
-                event.setCancelled(true);
-                return;
-            }
+    }
+
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.LOW)
+    public void onBlockPistonRetract(BlockPistonRetractEvent event) {
+        if (!checkPistonMove(event.getBlock(), event.getBlocks())) {
+            event.setCancelled(true);
         }
     }
 
@@ -725,8 +793,15 @@ final class ClaimListener implements Listener {
         onCreatureSpawn(event, event.getReason(), event.getType(), event.getSpawnLocation());
     }
 
+    /**
+     * Most spawn attempts are decided by the spawn policy of their
+     * chunk alone; only chunks with mixed policies look up the claim.
+     */
     protected void onCreatureSpawn(Cancellable event, SpawnReason reason, EntityType entityType, Location location) {
-        if (!plugin.isLocalHomeWorld(location.getWorld())) return;
+        HomeWorldHandle world = plugin.getWorldHandle(location.getWorld());
+        if (!world.isLocal()) return;
+        final int x = location.getBlockX();
+        final int z = location.getBlockZ();
         switch (reason) {
         case CUSTOM:
         case DEFAULT:
@@ -740,7 +815,9 @@ final class ClaimListener implements Listener {
         case NATURAL:
             if (entityType == EntityType.PHANTOM) {
                 // No phantom spawning in the home world
-                if (plugin.getClaimAt(location) != null) {
+                byte policy = plugin.claimCache.spawnPolicy(world, x >> 4, z >> 4);
+                if (policy == ClaimCache.SPAWN_UNCLAIMED) return;
+                if ((policy & ClaimCache.SPAWN_UNCLAIMED) == 0 || plugin.claimCache.at(world, x, z) != null) {
                     event.setCancelled(true);
                 }
                 return;
@@ -749,7 +826,13 @@ final class ClaimListener implements Listener {
         default: break;
         }
         // Respect claim settings
-        Claim claim = plugin.getClaimAt(location);
+        byte policy = plugin.claimCache.spawnPolicy(world, x >> 4, z >> 4);
+        if ((policy & ClaimCache.SPAWN_DENIED) == 0) return;
+        if (policy == ClaimCache.SPAWN_DENIED) {
+            event.setCancelled(true);
+            return;
+        }
+        Claim claim = plugin.claimCache.at(world, x, z);
         if (claim == null) return;
         if (!claim.getSetting(ClaimSetting.MOB_SPAWNING)) {
             event.setCancelled(true);
@@ -848,12 +931,11 @@ final class ClaimListener implements Listener {
         Player player = query.getPlayer();
         Entity entity = query.getEntity();
         if (isOwner(player, entity)) return;
-        Block block = entity.getLocation().getBlock();
         switch (query.getAction()) {
         case MOUNT:
         case DISMOUNT:
         case SIT:
-            checkPlayerAction(player, block, TrustType.INTERACT, query, false);
+            checkPlayerAction(player, entity, TrustType.INTERACT, query, false);
             break;
         case SHEAR:
         case FEED:
@@ -861,7 +943,7 @@ final class ClaimListener implements Listener {
         case LEASH:
         case PICKUP:
         case INVENTORY:
-            checkPlayerAction(player, block, TrustType.CONTAINER, query, false);
+            checkPlayerAction(player, entity, TrustType.CONTAINER, query, false);
             break;
         case DAMAGE:
         case IGNITE:
@@ -878,7 +960,7 @@ final class ClaimListener implements Listener {
                 && entity.getType() != EntityType.SHULKER) {
                 return;
             }
-            checkPlayerAction(player, block, TrustType.BUILD, query, false);
+            checkPlayerAction(player, entity, TrustType.BUILD, query, false);
         }
     }
 
@@ -925,21 +1007,37 @@ final class ClaimListener implements Listener {
         Player player = (Player) event.getEntity();
         if (plugin.doesIgnoreClaims(player)) return;
         Vehicle vehicle = event.getVehicle();
-        checkPlayerAction(player, vehicle.getLocation().getBlock(), TrustType.BUILD, event, false);
+        checkPlayerAction(player, vehicle, TrustType.BUILD, event, false);
     }
 
     @EventHandler(ignoreCancelled = true, priority = EventPriority.LOW)
     public void onPlayerEggThrow(PlayerEggThrowEvent event) {
-        if (!checkPlayerAction(event.getPlayer(), event.getEgg().getLocation().getBlock(), TrustType.BUILD, null, false)) {
+        if (!checkPlayerAction(event.getPlayer(), event.getEgg(), TrustType.BUILD, null, false)) {
             event.setHatching(false);
         }
     }
 
     @EventHandler(ignoreCancelled = true, priority = EventPriority.LOW)
     public void onBlockFromTo(BlockFromToEvent event) {
-        if (!plugin.isLocalHomeWorld(event.getBlock().getWorld())) return;
-        Claim from = plugin.getClaimAt(event.getBlock());
-        Claim to = plugin.getClaimAt(event.getToBlock());
+        final Block block = event.getBlock();
+        HomeWorldHandle world = plugin.getWorldHandle(block.getWorld());
+        if (!world.isLocal()) return;
+        final Block toBlock = event.getToBlock();
+        final int ax = block.getX();
+        final int az = block.getZ();
+        final int bx = toBlock.getX();
+        final int bz = toBlock.getZ();
+        if (plugin.claimCache.isKnownSame(world, ax, az, bx, bz)) {
+            fastPathCount += 1;
+            return;
+        }
+        Claim from = plugin.claimCache.at(world, ax, az);
+        if (from != null && from.getArea().contains(bx, bz) && plugin.claimCache.isExclusive(world, from)) {
+            fastPathCount += 1;
+            return;
+        }
+        slowPathCount += 1;
+        Claim to = plugin.claimCache.at(world, bx, bz);
         if (!Objects.equals(from, to)) {
             event.setCancelled(true);
         }
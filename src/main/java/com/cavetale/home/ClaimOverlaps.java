@@ -0,0 +1,134 @@
+package com.cavetale.home;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * Find overlapping claims at load time, see
+ * HomePlugin#deleteOverlappingClaims.
+ */
+final class ClaimOverlaps {
+    private ClaimOverlaps() { }
+
+    /**
+     * Sweep each world along the x axis to find overlapping areas.
+     * Element i of the result holds the indexes greater than i of
+     * the areas overlapping area i, in ascending order, or is null
+     * if there are none.
+     *
+     * The active set holds the areas crossing the sweep line, ordered
+     * by their lower y bound.  Only those starting within the tallest
+     * active height below the new area are visited.  Active areas
+     * which do not overlap each other all cross the sweep line, so
+     * their y ranges are disjoint, and few of them fit in there.
+     */
+    static int[][] findLaterOverlaps(List<String> worlds, List<Area> areas) {
+        final int size = areas.size();
+        Map<String, int[]> worldCounts = new HashMap<>();
+        for (int i = 0; i < size; i += 1) {
+            worldCounts.computeIfAbsent(worlds.get(i), w -> new int[1])[0] += 1;
+        }
+        Map<String, int[]> worldIndexes = new HashMap<>();
+        Map<String, int[]> worldFill = new HashMap<>();
+        for (Map.Entry<String, int[]> entry : worldCounts.entrySet()) {
+            worldIndexes.put(entry.getKey(), new int[entry.getValue()[0]]);
+            worldFill.put(entry.getKey(), new int[1]);
+        }
+        for (int i = 0; i < size; i += 1) {
+            worldIndexes.get(worlds.get(i))[worldFill.get(worlds.get(i))[0]++] = i;
+        }
+        long[] pairs = new long[16];
+        int pairCount = 0;
+        for (int[] indexes : worldIndexes.values()) {
+            final long[] order = new long[indexes.length];
+            for (int k = 0; k < indexes.length; k += 1) {
+                order[k] = key(areas.get(indexes[k]).ax, indexes[k]);
+            }
+            Arrays.sort(order);
+            // Areas crossing the sweep line, soonest to end first
+            PriorityQueue<long[]> ending = new PriorityQueue<>((l, r) -> Long.compare(l[0], r[0]));
+            TreeMap<Long, Integer> active = new TreeMap<>();
+            // Multiset of active heights, height to count
+            TreeMap<Integer, int[]> heights = new TreeMap<>();
+            for (long it : order) {
+                final int i = (int) it;
+                final Area area = areas.get(i);
+                while (!ending.isEmpty() && ending.peek()[0] < key(area.ax, 0)) {
+                    final int j = (int) ending.poll()[1];
+                    final Area other = areas.get(j);
+                    active.remove(key(other.ay, j));
+                    int[] count = heights.get(other.by - other.ay);
+                    if (--count[0] == 0) heights.remove(other.by - other.ay);
+                }
+                if (!active.isEmpty()) {
+                    final long from = Math.max((long) Integer.MIN_VALUE, (long) area.ay - (long) heights.lastKey());
+                    for (int j : active.subMap(key((int) from, 0), true, key(area.by, Integer.MAX_VALUE), true).values()) {
+                        if (areas.get(j).by < area.ay) continue;
+                        if (pairCount == pairs.length) pairs = Arrays.copyOf(pairs, pairs.length * 2);
+                        pairs[pairCount++] = key(Math.min(i, j), Math.max(i, j));
+                    }
+                }
+                active.put(key(area.ay, i), i);
+                heights.computeIfAbsent(area.by - area.ay, h -> new int[1])[0] += 1;
+                ending.add(new long[] {key(area.bx, 0), i});
+            }
+        }
+        Arrays.sort(pairs, 0, pairCount);
+        int[][] result = new int[size][];
+        for (int from = 0; from < pairCount;) {
+            final int first = (int) (pairs[from] >> 32);
+            int to = from + 1;
+            while (to < pairCount && (int) (pairs[to] >> 32) == first) to += 1;
+            int[] later = new int[to - from];
+            for (int k = from; k < to; k += 1) later[k - from] = (int) pairs[k];
+            result[first] = later;
+            from = to;
+        }
+        return result;
+    }
+
+    /**
+     * Decide which areas to delete.  Areas are visited in list order,
+     * and each one not yet doomed forms a group with all later areas
+     * it overlaps.  The group is sorted by blocks, largest first and
+     * otherwise in list order, and all but the first are doomed.
+     */
+    static boolean[] findDoomed(int[][] laterOverlaps, int[] blocks) {
+        final int size = blocks.length;
+        boolean[] doomed = new boolean[size];
+        for (int i = 0; i < size - 1; i += 1) {
+            if (doomed[i]) continue;
+            int[] later = laterOverlaps[i];
+            if (later == null) continue;
+            int[] group = new int[later.length + 1];
+            group[0] = i;
+            System.arraycopy(later, 0, group, 1, later.length);
+            // Stable insertion sort, groups are small
+            for (int k = 1; k < group.length; k += 1) {
+                final int index = group[k];
+                int m = k - 1;
+                while (m >= 0 && blocks[group[m]] < blocks[index]) {
+                    group[m + 1] = group[m];
+                    m -= 1;
+                }
+                group[m + 1] = index;
+            }
+            for (int k = 1; k < group.length; k += 1) {
+                doomed[group[k]] = true;
+            }
+        }
+        return doomed;
+    }
+
+    /**
+     * Pack two ints into a long which sorts by the first, then the
+     * second, which must not be negative.
+     */
+    private static long key(int high, int low) {
+        return ((long) high << 32) | (low & 0xFFFFFFFFL);
+    }
+}
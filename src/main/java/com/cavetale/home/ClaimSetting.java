@@ -22,6 +22,18 @@ public enum ClaimSetting {
     public final String key = name().toLowerCase();
     public final String displayName;
     public final boolean defaultValue;
+    /** This setting's bit in Claim's settings mask. */
+    public final long bit = 1L << ordinal();
+    /** The settings mask with every setting at its default value. */
+    public static final long DEFAULT_BITS;
+
+    static {
+        long bits = 0L;
+        for (ClaimSetting setting : values()) {
+            if (setting.defaultValue) bits |= setting.bit;
+        }
+        DEFAULT_BITS = bits;
+    }
 
     public boolean isAdminOnly() {
         switch (this) {
@@ -8,9 +8,11 @@ import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.entity.EntityDeathEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerKickEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.event.player.PlayerTeleportEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
 
 @RequiredArgsConstructor
 public final class EventListener implements Listener {
@@ -20,9 +22,18 @@ public final class EventListener implements Listener {
         plugin.getServer().getPluginManager().registerEvents(this, plugin);
     }
 
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        Player player = event.getPlayer();
+        plugin.sessions.of(player).refreshPermissions(player);
+        plugin.offlinePermissions.remove(player.getUniqueId());
+        plugin.bumpTrustEpoch();
+    }
+
     @EventHandler(priority = EventPriority.MONITOR)
     public void onPlayerQuit(PlayerQuitEvent event) {
         plugin.sessions.exit(event.getPlayer());
+        plugin.bumpTrustEpoch();
     }
 
     @EventHandler(priority = EventPriority.MONITOR)
@@ -30,12 +41,17 @@ public final class EventListener implements Listener {
         plugin.sessions.exit(event.getPlayer());
     }
 
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldUnload(WorldUnloadEvent event) {
+        plugin.claimCache.forgetHandle(event.getWorld());
+    }
+
     @EventHandler
     protected void onPlayerQuery(PluginPlayerQuery query) {
         Player player = query.getPlayer();
         PluginPlayerQuery.Name name = query.getName();
         if (name == PluginPlayerQuery.Name.CLAIM_COUNT) {
-            int claimCount = plugin.findClaims(player).size();
+            int claimCount = plugin.countClaims(player.getUniqueId());
             PluginPlayerQuery.Name.CLAIM_COUNT.respond(query, plugin, claimCount);
         } else if (name == PluginPlayerQuery.Name.HOME_COUNT) {
             int homeCount = plugin.getHomes().findOwnedHomes(player.getUniqueId()).size();
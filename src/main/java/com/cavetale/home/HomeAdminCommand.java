@@ -1,6 +1,7 @@
 package com.cavetale.home;
 
 import com.cavetale.core.command.AbstractCommand;
+import com.cavetale.core.command.CommandArgCompleter;
 import com.cavetale.core.command.CommandContext;
 import com.cavetale.core.command.CommandNode;
 import com.cavetale.core.command.CommandWarn;
@@ -8,11 +9,14 @@ import com.cavetale.core.playercache.PlayerCache;
 import com.cavetale.home.sql.SQLHome;
 import com.cavetale.home.sql.SQLHomeInvite;
 import com.cavetale.home.sql.SQLHomeWorld;
+import com.sun.management.ThreadMXBean;
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 import net.kyori.adventure.text.Component;
 import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import static net.kyori.adventure.text.Component.join;
@@ -22,6 +26,9 @@ import static net.kyori.adventure.text.JoinConfiguration.separator;
 import static net.kyori.adventure.text.format.NamedTextColor.*;
 
 public final class HomeAdminCommand extends AbstractCommand<HomePlugin> {
+    /** Upper bound on bench checks, which all run on the main thread. */
+    protected static final int MAX_BENCH_CHECKS = 1_000_000;
+
     protected HomeAdminCommand(final HomePlugin plugin) {
         super(plugin, "homeadmin");
     }
@@ -56,6 +63,9 @@ public final class HomeAdminCommand extends AbstractCommand<HomePlugin> {
         rootNode.addChild("debug").denyTabCompletion()
             .description("Debug Spam")
             .senderCaller(this::debug);
+        rootNode.addChild("bench").arguments("[count]")
+            .description("Measure the claim check at your location")
+            .playerCaller(this::bench);
         // Public
         CommandNode publicNode = rootNode.addChild("public")
             .description("Public home comands");
@@ -71,8 +81,10 @@ public final class HomeAdminCommand extends AbstractCommand<HomePlugin> {
 
     private boolean reload(CommandSender sender, String[] args) {
         if (args.length != 0) return false;
+        plugin.reloadConfig();
+        plugin.borderHighlighter.loadConfig();
         plugin.loadFromDatabase();
-        sender.sendMessage(text("Database reloaded", AQUA));
+        sender.sendMessage(text("Config and database reloaded", AQUA));
         return true;
     }
 
@@ -190,7 +202,65 @@ public final class HomeAdminCommand extends AbstractCommand<HomePlugin> {
             for (var it : plugin.worldList) {
                 sender.sendMessage("HomeWorld: " + it);
             }
+            plugin.sessions.debug(sender);
+            sender.sendMessage("Border cache: borders=" + plugin.borderHighlighter.cacheSize()
+                               + " hits=" + plugin.borderHighlighter.cacheHits
+                               + " misses=" + plugin.borderHighlighter.cacheMisses
+                               + " emitted=" + plugin.borderHighlighter.emitted
+                               + " dropped=" + plugin.borderHighlighter.dropped
+                               + " deduplicated=" + plugin.borderHighlighter.deduplicated);
+            if (plugin.claimListener != null) {
+                sender.sendMessage("Fluid and piston checks: fast=" + plugin.claimListener.fastPathCount
+                                   + " slow=" + plugin.claimListener.slowPathCount);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Run the claim protection check many times at the player's
+     * location and report the time and heap allocated per check.
+     * Permitted checks inside a claim are expected to allocate
+     * nothing.  Outside of claims, building asks the structure
+     * service, which may allocate.
+     */
+    private boolean bench(Player player, String[] args) {
+        if (args.length > 1) return false;
+        final int count = args.length >= 1
+            ? CommandArgCompleter.requireInt(args[0], i -> i > 0 && i <= MAX_BENCH_CHECKS)
+            : 100_000;
+        if (plugin.claimListener == null) throw new CommandWarn("Claim protection is not enabled");
+        if (!(ManagementFactory.getThreadMXBean() instanceof ThreadMXBean)) {
+            throw new CommandWarn("Allocation counting not supported");
+        }
+        final ThreadMXBean bean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!bean.isThreadAllocatedMemorySupported() || !bean.isThreadAllocatedMemoryEnabled()) {
+            throw new CommandWarn("Allocation counting not enabled");
+        }
+        final Location location = player.getLocation();
+        final World world = location.getWorld();
+        final int x = location.getBlockX();
+        final int y = location.getBlockY();
+        final int z = location.getBlockZ();
+        final ClaimListener listener = plugin.claimListener;
+        // Warm up
+        for (int i = 0; i < count; i += 1) {
+            listener.checkPlayerAction(player, world, x, y, z, TrustType.BUILD, null, false);
+        }
+        int permitted = 0;
+        final long bytesBefore = bean.getCurrentThreadAllocatedBytes();
+        final long nanosBefore = System.nanoTime();
+        for (int i = 0; i < count; i += 1) {
+            if (listener.checkPlayerAction(player, world, x, y, z, TrustType.BUILD, null, false)) {
+                permitted += 1;
+            }
         }
+        final long nanos = System.nanoTime() - nanosBefore;
+        final long bytes = bean.getCurrentThreadAllocatedBytes() - bytesBefore;
+        player.sendMessage(textOfChildren(text("Checks ", AQUA), text(count, WHITE),
+                                          text(" permitted ", AQUA), text(permitted, WHITE),
+                                          text(" time ", AQUA), text(String.format("%.1fns", (double) nanos / count), WHITE),
+                                          text(" heap ", AQUA), text(String.format("%.2fB", (double) bytes / count), WHITE)));
         return true;
     }
 
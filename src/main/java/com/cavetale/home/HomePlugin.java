@@ -6,6 +6,8 @@ import com.cavetale.core.connect.NetworkServer;
 import com.cavetale.core.event.player.PluginPlayerEvent;
 import com.cavetale.core.perm.Perm;
 import com.cavetale.home.claimcache.ClaimCache;
+import com.cavetale.home.claimcache.ClaimIndexType;
+import com.cavetale.home.claimcache.HomeWorldHandle;
 import com.cavetale.home.sql.SQLClaim;
 import com.cavetale.home.sql.SQLClaimTrust;
 import com.cavetale.home.sql.SQLHome;
@@ -13,29 +15,30 @@ import com.cavetale.home.sql.SQLHomeInvite;
 import com.cavetale.home.sql.SQLHomeWorld;
 import com.cavetale.home.sql.SQLStatic;
 import com.cavetale.home.sql.SQLSubclaim;
+import com.cavetale.home.sql.SQLSubclaimTrust;
 import com.cavetale.home.struct.BlockVector;
 import com.winthier.sql.SQLDatabase;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ThreadLocalRandom;
-import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import lombok.Getter;
 import net.kyori.adventure.text.Component;
 import org.bukkit.Bukkit;
 import org.bukkit.Chunk;
 import org.bukkit.Location;
-import org.bukkit.Material;
-import org.bukkit.Particle;
 import org.bukkit.World;
 import org.bukkit.block.Block;
-import org.bukkit.block.BlockFace;
+import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.entity.Player;
 import org.bukkit.event.player.PlayerTeleportEvent.TeleportCause;
 import org.bukkit.metadata.FixedMetadataValue;
@@ -64,6 +67,16 @@ public final class HomePlugin extends JavaPlugin {
     protected final Sessions sessions = new Sessions(this);
     protected final EventListener eventListener = new EventListener(this);
     protected final ConnectListener connectListener = new ConnectListener(this);
+    protected final BorderHighlighter borderHighlighter = new BorderHighlighter(this);
+    /** Null if there are no local home worlds. */
+    protected ClaimListener claimListener;
+    /**
+     * Global trust epoch.  Bumped whenever permissions which may
+     * affect the trust in any claim might have changed.
+     */
+    protected int trustEpoch;
+    protected static final long PERMISSION_REFRESH_TICKS = 100L;
+    protected final OfflinePermissionCache offlinePermissions = new OfflinePermissionCache();
     // Utilty
     protected long ticks;
     protected Random random = ThreadLocalRandom.current();
@@ -84,6 +97,7 @@ public final class HomePlugin extends JavaPlugin {
     @Override
     public void onEnable() {
         instance = this;
+        saveDefaultConfig();
         db = new SQLDatabase(this);
         db.registerTables(SQLStatic.getAllTableClasses());
         db.createAllTables();
@@ -92,10 +106,11 @@ public final class HomePlugin extends JavaPlugin {
             getLogger().info("Local home worlds is empty");
         }
         if (!localHomeWorlds.isEmpty()) {
-            new ClaimListener(this).enable();
+            claimListener = new ClaimListener(this).enable();
         }
         sessions.enable();
         eventListener.enable();
+        borderHighlighter.enable();
         connectListener.enable();
         homeAdminCommand.enable();
         claimAdminCommand.enable();
@@ -110,12 +125,34 @@ public final class HomePlugin extends JavaPlugin {
         unInviteHomeCommand.enable();
         subclaimCommand.enable();
         Bukkit.getScheduler().runTaskTimer(this, this::updateFreeSpace, 0L, 20L * 60L);
+        // There is no event for permission changes made elsewhere,
+        // so the snapshots are refreshed regularly.
+        Bukkit.getScheduler().runTaskTimer(this, this::refreshPermissions, PERMISSION_REFRESH_TICKS, PERMISSION_REFRESH_TICKS);
+    }
+
+    /**
+     * Refresh the permission snapshots of all online players and
+     * expire those of offline players.  Cached trust is invalidated
+     * only if anything may have changed.
+     */
+    private void refreshPermissions() {
+        boolean changed = sessions.refreshPermissions();
+        if (offlinePermissions.purgeExpired()) changed = true;
+        if (changed) bumpTrustEpoch();
+    }
+
+    /**
+     * Invalidate the cached trust of every player in every claim.
+     */
+    public void bumpTrustEpoch() {
+        trustEpoch += 1;
     }
 
     @Override
     public void onDisable() {
         claimCache.clear();
         homes.clear();
+        offlinePermissions.clear();
         db.waitForAsyncTask();
         db.close();
     }
@@ -204,15 +241,17 @@ public final class HomePlugin extends JavaPlugin {
         }
     }
 
+    /**
+     * Grow a claim in all directions as far as its blocks and its
+     * neighbors allow, with a single resize.
+     */
     protected ClaimOperationResult autoGrowClaim(Claim claim) {
         Area area = claim.getArea();
-        Area newArea = new Area(area.ax - 1, area.ay - 1, area.bx + 1, area.by + 1);
-        if (newArea.size() > claim.getBlocks()) return ClaimOperationResult.INSUFFICIENT_BLOCKS;
-        String claimWorld = claim.getWorld();
-        for (Claim other : claimCache.within(claim.getWorld(), newArea)) {
-            if (other != claim) return ClaimOperationResult.OVERLAP;
-        }
-        claim.setArea(newArea);
+        int steps = area.maxOutset(claim.getBlocks());
+        if (steps <= 0) return ClaimOperationResult.INSUFFICIENT_BLOCKS;
+        steps = claimCache.findMaxGrowth(claim.getWorld(), area, claim, steps);
+        if (steps <= 0) return ClaimOperationResult.OVERLAP;
+        claim.setArea(area.outset(steps));
         return ClaimOperationResult.SUCCESS;
     }
 
@@ -225,40 +264,15 @@ public final class HomePlugin extends JavaPlugin {
             }
         }
         claimCache.clear();
-        claimCache.initialize(localHomeWorlds);
+        claimCache.initialize(localHomeWorlds, mirrorWorlds, this::getClaimIndexType);
         homes.clear();
+        List<Claim> loadedClaims = new ArrayList<>();
         for (SQLClaim row : db.find(SQLClaim.class).findList()) {
-            Claim claim = new Claim(this, row);
-            claimCache.add(claim);
+            loadedClaims.add(new Claim(this, row));
         }
+        claimCache.addAll(loadedClaims);
         if (deleteOverlappingClaims) {
-            List<Claim> claims = claimCache.getAllClaims();
-            List<Claim> deleteClaims = new ArrayList<>();
-            for (int i = 0; i < claims.size() - 1; i += 1) {
-                Claim a = claims.get(i);
-                if (deleteClaims.contains(a)) continue;
-                List<Claim> overlappingClaims = new ArrayList<>();
-                overlappingClaims.add(a);
-                for (int j = i + 1; j < claims.size(); j += 1) {
-                    Claim b = claims.get(j);
-                    if (a.getWorld().equals(b.getWorld()) && a.getArea().overlaps(b.getArea())) {
-                        getLogger().warning("Claims overlap: " + a.getId() + "/" + b.getId()
-                                            + " at " + a.getArea().centerX() + ", " + a.getArea().centerY());
-                        overlappingClaims.add(b);
-                    }
-                }
-                if (overlappingClaims.size() == 1) continue;
-                Collections.sort(overlappingClaims, (l, r) -> Integer.compare(r.getBlocks(), l.getBlocks()));
-                for (int j = 1; j < overlappingClaims.size(); j += 1) {
-                    deleteClaims.add(overlappingClaims.get(j));
-                }
-            }
-            if (!deleteClaims.isEmpty()) {
-                getLogger().warning("Deleting " + deleteClaims.size() + " claims...");
-                for (Claim deleteClaim : deleteClaims) {
-                    deleteClaim(deleteClaim);
-                }
-            }
+            deleteOverlappingClaims();
         }
         for (SQLClaimTrust trust : db.find(SQLClaimTrust.class).findList()) {
             Claim claim = getClaimById(trust.getClaimId());
@@ -272,6 +286,7 @@ public final class HomePlugin extends JavaPlugin {
                 continue;
             }
             claim.getTrusted().put(trust.getTrustee(), trust);
+            claimCache.addTrustee(claim, trust.getTrustee());
         }
         for (SQLSubclaim row : db.find(SQLSubclaim.class).findList()) {
             Claim claim = getClaimById(row.getClaimId());
@@ -281,7 +296,28 @@ public final class HomePlugin extends JavaPlugin {
                 continue;
             }
             Subclaim subclaim = new Subclaim(this, claim, row);
-            claim.getSubclaims().add(subclaim);
+            claim.addSubclaim(subclaim);
+        }
+        for (SQLSubclaimTrust row : db.find(SQLSubclaimTrust.class).findList()) {
+            Claim claim = getClaimById(row.getClaimId());
+            Subclaim subclaim = claim != null ? claim.getSubclaim(row.getSubclaimId()) : null;
+            if (subclaim == null) {
+                getLogger().warning("Subclaim trust without subclaim: " + row);
+                db.deleteAsync(row, null);
+                continue;
+            }
+            subclaim.loadTrust(row);
+        }
+        int migratedSubclaims = 0;
+        for (Claim claim : claimCache.getAllClaims()) {
+            for (Subclaim subclaim : claim.getSubclaims()) {
+                if (!subclaim.isLegacyTrust()) continue;
+                subclaim.migrateLegacyTrust();
+                migratedSubclaims += 1;
+            }
+        }
+        if (migratedSubclaims > 0) {
+            getLogger().info("Moved trust of " + migratedSubclaims + " subclaims to the trust table");
         }
         for (SQLHome home : db.find(SQLHome.class).findList()) {
             home.unpack();
@@ -317,22 +353,35 @@ public final class HomePlugin extends JavaPlugin {
                 final List<SQLSubclaim> subclaimList = db.find(SQLSubclaim.class)
                     .eq("claimId", claimId)
                     .findList();
+                final List<SQLSubclaimTrust> subclaimTrustList = db.find(SQLSubclaimTrust.class)
+                    .eq("claimId", claimId)
+                    .findList();
                 Bukkit.getScheduler().runTask(this, () -> {
                         Claim claim;
                         if (oldClaim != null) {
                             claim = oldClaim;
+                            claimCache.unindexPlayers(claim);
                             claim.updateSQLRow(row);
                         } else {
                             claim = new Claim(this, row);
-                            claimCache.add(claim);
                         }
                         claim.getTrusted().clear();
-                        claim.getSubclaims().clear();
+                        claim.clearSubclaims();
                         for (SQLClaimTrust claimTrustRow : claimTrustList) {
                             claim.getTrusted().put(claimTrustRow.getTrustee(), claimTrustRow);
                         }
                         for (SQLSubclaim subclaimRow : subclaimList) {
-                            claim.getSubclaims().add(new Subclaim(this, claim, subclaimRow));
+                            claim.addSubclaim(new Subclaim(this, claim, subclaimRow));
+                        }
+                        for (SQLSubclaimTrust subclaimTrustRow : subclaimTrustList) {
+                            Subclaim subclaim = claim.getSubclaim(subclaimTrustRow.getSubclaimId());
+                            if (subclaim != null) subclaim.loadTrust(subclaimTrustRow);
+                        }
+                        claim.bumpTrustEpoch();
+                        if (oldClaim != null) {
+                            claimCache.indexPlayers(claim);
+                        } else {
+                            claimCache.add(claim);
                         }
                     });
             });
@@ -368,26 +417,94 @@ public final class HomePlugin extends JavaPlugin {
     }
 
     public boolean isLocalHomeWorld(World world) {
-        return localHomeWorlds.contains(world.getName());
+        return claimCache.handle(world).isLocal();
+    }
+
+    /**
+     * Get the resolved local, mirror, and cache mapping of a world.
+     */
+    public HomeWorldHandle getWorldHandle(World world) {
+        return claimCache.handle(world);
     }
 
     public boolean isLocalHomeWorld(String worldName) {
         return localHomeWorlds.contains(worldName);
     }
 
-    public Claim getClaimById(int claimId) {
-        for (Claim claim : claimCache.getAllClaims()) {
-            if (claim.getId() == claimId) return claim;
+    /**
+     * Read the spatial index backend of a world from the config.
+     */
+    private ClaimIndexType getClaimIndexType(String world) {
+        String defaultName = getConfig().getString("ClaimIndex.Default", "slots");
+        ConfigurationSection worlds = getConfig().getConfigurationSection("ClaimIndex.Worlds");
+        String name = worlds != null ? worlds.getString(world, defaultName) : defaultName;
+        ClaimIndexType result = ClaimIndexType.of(name);
+        if (result == null) {
+            getLogger().warning("Unknown claim index type for " + world + ": " + name);
+            return ClaimIndexType.SLOTS;
         }
-        return null;
+        return result;
+    }
+
+    /**
+     * Find overlapping claims and delete all but the largest of each
+     * group.  Claims are visited in list order, and each one not yet
+     * doomed forms a group with all later claims it overlaps.
+     */
+    private void deleteOverlappingClaims() {
+        final long start = System.nanoTime();
+        List<Claim> claims = claimCache.getAllClaims();
+        final int size = claims.size();
+        List<String> worlds = new ArrayList<>(size);
+        List<Area> areas = new ArrayList<>(size);
+        int[] blocks = new int[size];
+        for (int i = 0; i < size; i += 1) {
+            Claim claim = claims.get(i);
+            worlds.add(claim.getWorld());
+            areas.add(claim.getArea());
+            blocks[i] = claim.getBlocks();
+        }
+        int[][] laterOverlaps = ClaimOverlaps.findLaterOverlaps(worlds, areas);
+        boolean[] doomed = ClaimOverlaps.findDoomed(laterOverlaps, blocks);
+        int overlapCount = 0;
+        for (int i = 0; i < size - 1; i += 1) {
+            if (doomed[i] || laterOverlaps[i] == null) continue;
+            Claim a = claims.get(i);
+            for (int j : laterOverlaps[i]) {
+                Claim b = claims.get(j);
+                getLogger().warning("Claims overlap: " + a.getId() + "/" + b.getId()
+                                    + " at " + a.getArea().centerX() + ", " + a.getArea().centerY());
+                overlapCount += 1;
+            }
+        }
+        List<Claim> deleteClaims = new ArrayList<>();
+        for (int i = 0; i < size; i += 1) {
+            if (doomed[i]) deleteClaims.add(claims.get(i));
+        }
+        getLogger().info("Overlap check: " + size + " claims, " + overlapCount + " overlaps"
+                         + " in " + ((System.nanoTime() - start) / 1_000_000L) + "ms");
+        if (!deleteClaims.isEmpty()) {
+            getLogger().warning("Deleting " + deleteClaims.size() + " claims...");
+            for (Claim deleteClaim : deleteClaims) {
+                deleteClaim(deleteClaim);
+            }
+        }
+    }
+
+    public Claim getClaimById(int claimId) {
+        return claimCache.byId(claimId);
     }
 
     public Claim getClaimAt(Block block) {
-        return getClaimAt(block.getWorld().getName(), block.getX(), block.getZ());
+        return claimCache.at(claimCache.handle(block.getWorld()), block.getX(), block.getZ());
     }
 
     public Claim getClaimAt(Location location) {
-        return getClaimAt(location.getWorld().getName(), location.getBlockX(), location.getBlockZ());
+        return claimCache.at(claimCache.handle(location.getWorld()), location.getBlockX(), location.getBlockZ());
+    }
+
+    public Claim getClaimAt(World world, int x, int z) {
+        return claimCache.at(claimCache.handle(world), x, z);
     }
 
     public Claim getClaimAt(BlockVector blockVector) {
@@ -395,9 +512,15 @@ public final class HomePlugin extends JavaPlugin {
     }
 
     public Claim getClaimAt(String w, int x, int y) {
-        if (!localHomeWorlds.contains(w)) return null;
-        w = mirrorWorlds.getOrDefault(w, w);
-        return claimCache.at(w, x, y);
+        return claimCache.atLocal(w, x, y);
+    }
+
+    /**
+     * Find the claims of many blocks in one world at once.  Element i
+     * of the result belongs to the i-th block.
+     */
+    public Claim[] getClaimsAt(World world, Collection<Block> blocks) {
+        return claimCache.atAll(claimCache.handle(world), blocks);
     }
 
     protected Claim findNearestOwnedClaim(Player player, int radius) {
@@ -406,24 +529,12 @@ public final class HomePlugin extends JavaPlugin {
         final String w = mirrorWorlds.getOrDefault(playerWorld, playerWorld);
         int x = playerLocation.getBlockX();
         int z = playerLocation.getBlockZ();
-        int minDist = Integer.MAX_VALUE;
-        Claim result = null;
-        Area area = new Area(x - radius, z - radius, x + radius, z + radius);
-        for (Claim claim : claimCache.within(w, area)) {
-            if (!claim.isOwner(player)) continue;
-            int dist = claim.getArea().distanceToPoint(x, z);
-            if (dist >= minDist) continue;
-            result = claim;
-            minDist = dist;
-        }
-        return result;
+        List<Claim> result = claimCache.nearest(w, x, z, 1, radius, claim -> claim.isOwner(player));
+        return result.isEmpty() ? null : result.get(0);
     }
 
     public void highlightClaim(Claim claim, Player player) {
-        highlightClaimHelper(claim.getArea(), player.getWorld(), player.getLocation().getBlockY(), (block, bf) -> {
-                player.spawnParticle(Particle.BLOCK_MARKER, block.getLocation().add(0.5, 0.5, 0.5),
-                                     1, 0.0, 0.0, 0.0, 0.0, Material.BARRIER.createBlockData());
-            });
+        borderHighlighter.highlight(player, claim.getArea(), BorderHighlighter.Style.CLAIM);
     }
 
     public void highlightSubclaim(Subclaim subclaim, Player player) {
@@ -432,52 +543,7 @@ public final class HomePlugin extends JavaPlugin {
     }
 
     public void highlightSubclaim(Area area, Player player) {
-        highlightClaimHelper(area, player.getWorld(), player.getLocation().getBlockY(), (block, face) -> {
-                BlockFace move;
-                double dx;
-                double dz;
-                switch (face) {
-                case NORTH: dx = 0; dz = 0; move = BlockFace.EAST; break;
-                case EAST: dx = 1; dz = 0; move = BlockFace.SOUTH; break;
-                case SOUTH: dx = 1; dz = 1; move = BlockFace.WEST; break;
-                case WEST: dx = 0; dz = 1; move = BlockFace.NORTH; break;
-                default: dx = 0; dz = 0; move = BlockFace.UP; break;
-                }
-                player.spawnParticle(Particle.END_ROD, block.getLocation().add(dx, 0.125, dz), 1, 0.0, 0.0, 0.0, 0.0);
-                dx += move.getModX() * 0.5;
-                dz += move.getModZ() * 0.5;
-                player.spawnParticle(Particle.END_ROD, block.getLocation().add(dx, 0.125, dz), 1, 0.0, 0.0, 0.0, 0.0);
-            });
-    }
-
-    /**
-     * Inner loop of highlightClaimHelper().
-     */
-    private void highlightClaimHandleBlock(World world, int x, int y, int z, BlockFace face, BiConsumer<Block, BlockFace> callback) {
-        if (!world.isChunkLoaded(x >> 4, z >> 4)) return;
-        Block block = world.getBlockAt(x, y, z);
-        while (block.isEmpty() && block.getY() > 0) block = block.getRelative(0, -1, 0);
-        while (!block.isEmpty() && block.getY() < 127) block = block.getRelative(0, 1, 0);
-        callback.accept(block, face);
-    }
-
-    private void highlightClaimHelper(Area area, World world, int playerY, BiConsumer<Block, BlockFace> callback) {
-        // Upper X axis
-        for (int x = area.ax; x <= area.bx; x += 1) {
-            highlightClaimHandleBlock(world, x, playerY, area.ay, BlockFace.NORTH, callback);
-        }
-        // Lower X axis
-        for (int x = area.ax; x <= area.bx; x += 1) {
-            highlightClaimHandleBlock(world, x, playerY, area.by, BlockFace.SOUTH, callback);
-        }
-        // Left Z axis
-        for (int z = area.ay; z <= area.by; z += 1) {
-            highlightClaimHandleBlock(world, area.ax, playerY, z, BlockFace.WEST, callback);
-        }
-        // Right Z axis
-        for (int z = area.ay; z <= area.by; z += 1) {
-            highlightClaimHandleBlock(world, area.bx, playerY, z, BlockFace.EAST, callback);
-        }
+        borderHighlighter.highlight(player, area, BorderHighlighter.Style.SUBCLAIM);
     }
 
     public Claim findPrimaryClaim(UUID owner) {
@@ -486,24 +552,41 @@ public final class HomePlugin extends JavaPlugin {
     }
 
     public boolean hasAClaim(UUID owner) {
-        for (Claim claim : claimCache.getAllClaims()) {
-            if (claim.isPrimaryOwner(owner)) return true;
-        }
-        return false;
+        return claimCache.countOwnedClaims(owner) > 0;
+    }
+
+    public int countClaims(UUID owner) {
+        return claimCache.countOwnedClaims(owner);
     }
 
+    /**
+     * Find all claims owned by the player, newest first.
+     */
     public List<Claim> findClaims(UUID owner) {
-        List<Claim> list = new ArrayList<>();
-        for (Claim claim : claimCache.getAllClaims()) {
-            if (claim.isPrimaryOwner(owner)) list.add(claim);
-        }
-        Collections.sort(list, (a, b) -> b.getCreated().compareTo(a.getCreated()));
-        return list;
+        return new ArrayList<>(claimCache.findOwnedClaims(owner));
     }
 
     public List<Claim> findClaims(UUID player, TrustType trust) {
+        if (!trust.isTrust() || doesIgnoreClaims(player)) {
+            // Every claim may match; fall back to the full scan.
+            List<Claim> list = new ArrayList<>();
+            for (Claim claim : claimCache.getAllClaims()) {
+                if (claim.getTrustType(player).gte(trust)) list.add(claim);
+            }
+            Collections.sort(list, (a, b) -> b.getCreated().compareTo(a.getCreated()));
+            return list;
+        }
+        // Only owned, trusted, public, or admin claims can grant
+        // trust.
+        Set<Claim> candidates = new HashSet<>();
+        candidates.addAll(claimCache.findOwnedClaims(player));
+        candidates.addAll(claimCache.findTrusteeClaims(player));
+        for (Claim claim : claimCache.getPublicClaims()) {
+            if (claim.getPublicTrust().gte(trust)) candidates.add(claim);
+        }
+        candidates.addAll(claimCache.findOwnedClaims(Claim.ADMIN_ID));
         List<Claim> list = new ArrayList<>();
-        for (Claim claim : claimCache.getAllClaims()) {
+        for (Claim claim : candidates) {
             if (claim.getTrustType(player).gte(trust)) list.add(claim);
         }
         Collections.sort(list, (a, b) -> b.getCreated().compareTo(a.getCreated()));
@@ -525,6 +608,7 @@ public final class HomePlugin extends JavaPlugin {
         db.scheduleAsyncTask(() -> {
                 int trustCount = db.find(SQLClaimTrust.class).eq("claimId", claimId).delete();
                 int subclaimCount = db.find(SQLSubclaim.class).eq("claimId", claimId).delete();
+                db.find(SQLSubclaimTrust.class).eq("claimId", claimId).delete();
                 int claimCount = db.find(SQLClaim.class).eq("id", claimId).delete();
                 getLogger().info("Deleted claim #" + claimId
                                  + " claims=" + claimCount
@@ -558,7 +642,8 @@ public final class HomePlugin extends JavaPlugin {
         entity.removeMetadata(key, this);
     }
 
-    private static final String HOME_IGNORE_PERM = "home.ignore";
+    protected static final String HOME_IGNORE_PERM = "home.ignore";
+    protected static final String HOME_ADMINCLAIMS_PERM = "home.adminclaims";
 
     public void ignoreClaims(Player player, boolean value) {
         if (value) {
@@ -566,14 +651,32 @@ public final class HomePlugin extends JavaPlugin {
         } else {
             Perm.get().unset(player.getUniqueId(), HOME_IGNORE_PERM);
         }
+        sessions.of(player).setIgnoreClaims(value);
+        bumpTrustEpoch();
     }
 
     public boolean doesIgnoreClaims(Player player) {
-        return player.hasPermission(HOME_IGNORE_PERM);
+        return doesIgnoreClaims(player.getUniqueId());
     }
 
+    /**
+     * Check the home.ignore permission from the session snapshot, or
+     * the offline cache.
+     */
     public boolean doesIgnoreClaims(UUID uuid) {
-        return Perm.get().has(uuid, HOME_IGNORE_PERM);
+        Session session = sessions.get(uuid);
+        if (session != null) return session.isIgnoreClaims();
+        return offlinePermissions.get(uuid).ignoreClaims;
+    }
+
+    /**
+     * Check the home.adminclaims permission from the session
+     * snapshot, or the offline cache.
+     */
+    public boolean ownsAdminClaims(UUID uuid) {
+        Session session = sessions.get(uuid);
+        if (session != null) return session.isAdminClaims();
+        return offlinePermissions.get(uuid).adminClaims;
     }
 
     protected void warpTo(Player player, final Location loc, Runnable task) {
@@ -0,0 +1,62 @@
+package com.cavetale.home;
+
+import com.cavetale.core.perm.Perm;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Short lived snapshot of the claim related permissions of players
+ * without a session, so that claim checks do not reach the
+ * permission backend every time.  Online players are served by
+ * their Session instead.
+ */
+final class OfflinePermissionCache {
+    private static final long TTL = 60_000L;
+    private final Map<UUID, Entry> entries = new HashMap<>();
+
+    protected static final class Entry {
+        protected boolean ignoreClaims;
+        protected boolean adminClaims;
+        protected long expiry;
+    }
+
+    protected Entry get(UUID uuid) {
+        final long now = System.currentTimeMillis();
+        Entry entry = entries.get(uuid);
+        if (entry != null && entry.expiry > now) return entry;
+        if (entry == null) {
+            entry = new Entry();
+            entries.put(uuid, entry);
+        }
+        entry.ignoreClaims = Perm.get().has(uuid, HomePlugin.HOME_IGNORE_PERM);
+        entry.adminClaims = Perm.get().has(uuid, HomePlugin.HOME_ADMINCLAIMS_PERM);
+        entry.expiry = now + TTL;
+        return entry;
+    }
+
+    protected void remove(UUID uuid) {
+        entries.remove(uuid);
+    }
+
+    /**
+     * Drop expired entries.
+     * @return true if any entry was dropped
+     */
+    protected boolean purgeExpired() {
+        final long now = System.currentTimeMillis();
+        boolean result = false;
+        for (Iterator<Entry> iter = entries.values().iterator(); iter.hasNext();) {
+            if (iter.next().expiry <= now) {
+                iter.remove();
+                result = true;
+            }
+        }
+        return result;
+    }
+
+    protected void clear() {
+        entries.clear();
+    }
+}
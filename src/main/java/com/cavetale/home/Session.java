@@ -4,6 +4,8 @@ import com.cavetale.core.command.CommandWarn;
 import com.cavetale.core.event.hud.PlayerHudEvent;
 import com.cavetale.core.event.hud.PlayerHudPriority;
 import com.cavetale.core.event.player.PluginPlayerQuery;
+import com.cavetale.core.perm.Perm;
+import com.cavetale.home.claimcache.HomeWorldHandle;
 import com.cavetale.home.sql.SQLHomeWorld;
 import java.time.Duration;
 import java.util.ArrayList;
@@ -11,6 +13,7 @@ import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.Value;
@@ -40,6 +43,17 @@ import static net.kyori.adventure.text.format.TextDecoration.*;
 
 public final class Session {
     private static final int MAX_NOTIFY = 100;
+    /** Ticks between claim updates of a player who did not move. */
+    protected static final int FULL_UPDATE_TICKS = 20;
+    protected static final int NO_FLY_TICKS = 10;
+    protected static final int AUTOGROW_TICKS = 100;
+    // HUD trust classes, see Claim#hudLines
+    private static final int HUD_BUILD = 0;
+    private static final int HUD_INTERACT = 1;
+    private static final int HUD_DENIED = 2;
+    private static final List<Component> HUD_NO_CLAIM = List.of(join(noSeparators(),
+                                                                      text(tiny("claim "), GRAY),
+                                                                      text(tiny("none"), DARK_GRAY)));
     private final HomePlugin plugin;
     private final UUID uuid;
     @Setter private Function<PlayerInteractEvent, Boolean> playerInteractCallback = null;
@@ -50,12 +64,32 @@ public final class Session {
     @Getter @Setter private ClaimGrowSnippet claimGrowSnippet;
     private SQLHomeWorld currentHomeWorld;
     private Claim currentClaim;
-    private int ticks;
+    /** The world handle currentHomeWorld belongs to. */
+    private HomeWorldHandle currentWorld;
+    private int lastBlockX;
+    private int lastBlockZ;
+    /**
+     * Periodic duties run when (tick + bucket) hits their period, so
+     * each tick only handles a fraction of all players.
+     */
+    private final int bucket;
     private int notifyTicks;
+    // The HUD of currentClaim, valid while all epochs match
+    private Claim hudClaim;
+    private int hudClaimEpoch;
+    private int hudTrustEpoch;
+    private int hudGlobalEpoch;
+    private int hudClass;
+    private List<Component> hudFooter;
+    // Permission snapshot, see refreshPermissions()
+    @Getter @Setter private boolean ignoreClaims;
+    @Getter private boolean adminClaims;
 
     public Session(final HomePlugin plugin, final Player player) {
         this.plugin = plugin;
         this.uuid = player.getUniqueId();
+        this.bucket = Math.floorMod(uuid.hashCode(), FULL_UPDATE_TICKS);
+        refreshPermissions(player);
         final World world = player.getWorld();
         if (plugin.isLocalHomeWorld(world)) {
             currentHomeWorld = plugin.findHomeWorld(world.getName());
@@ -67,6 +101,22 @@ public final class Session {
         return Bukkit.getPlayer(uuid);
     }
 
+    /**
+     * Snapshot the permissions which claim checks depend on, so they
+     * never reach the permission backend.  Read through Perm, which
+     * is also where HomePlugin#ignoreClaims writes, so a refresh
+     * cannot revert a toggle the attachment has not picked up yet.
+     * @return true if the snapshot changed
+     */
+    protected boolean refreshPermissions(Player player) {
+        boolean newIgnoreClaims = Perm.get().has(uuid, HomePlugin.HOME_IGNORE_PERM);
+        boolean newAdminClaims = Perm.get().has(uuid, HomePlugin.HOME_ADMINCLAIMS_PERM);
+        boolean result = newIgnoreClaims != ignoreClaims || newAdminClaims != adminClaims;
+        ignoreClaims = newIgnoreClaims;
+        adminClaims = newAdminClaims;
+        return result;
+    }
+
     protected void disable() {
         playerInteractCallback = null;
         confirmCallback = null;
@@ -161,17 +211,22 @@ public final class Session {
     }
 
     public void notify(Player player, Claim claim) {
-        long now = System.currentTimeMillis();
-        if (notifyCooldown > now) return;
-        notifyCooldown = now + 1000L;
-        player.sendActionBar(text("This claim belongs to " + claim.getOwnerName(), RED));
+        notify(player, () -> text("This claim belongs to " + claim.getOwnerName(), RED));
     }
 
     public boolean notify(Player player, Component component) {
+        return notify(player, () -> component);
+    }
+
+    /**
+     * Like notify(Player, Component) but the message is only built
+     * if the cooldown allows it to be sent.
+     */
+    public boolean notify(Player player, Supplier<Component> component) {
         long now = System.currentTimeMillis();
         if (notifyCooldown > now) return false;
         notifyCooldown = now + 1000L;
-        player.sendActionBar(component);
+        player.sendActionBar(component.get());
         return true;
     }
 
@@ -200,18 +255,10 @@ public final class Session {
      * Player must be in home world!
      * Ticks must be checked beforehand!
      */
-    private void tickNoFlyZone(Player player) {
+    private void tickNoFlyZone(Player player, int x, int z) {
         boolean flying = player.isGliding() || PluginPlayerQuery.Name.IS_FLYING.call(plugin, player, false);
         if (!flying) return;
-        Location location = player.getLocation();
-        String worldName = location.getWorld().getName();
-        final String w = plugin.mirrorWorlds.getOrDefault(worldName, worldName);
-        final int x = location.getBlockX();
-        final int z = location.getBlockZ();
-        final int range = 64;
-        Area area = new Area(x - range, z - range, x + range, z + range);
-        for (Claim claim : plugin.getClaimCache().within(w, area)) {
-            if (claim.getSetting(ClaimSetting.ELYTRA)) continue;
+        if (plugin.getClaimCache().isNearNoFlyZone(currentWorld, x, z)) {
             Title title = Title.title(text("WARNING", RED, BOLD),
                                       text("Approaching No-Fly Zone!", RED, BOLD),
                                       Title.Times.times(Duration.ZERO, Duration.ofMillis(550), Duration.ZERO));
@@ -219,74 +266,101 @@ public final class Session {
             player.playSound(player.getEyeLocation(),
                              Sound.ENTITY_ARROW_HIT_PLAYER, SoundCategory.MASTER,
                              1.0f, 2.0f);
-            break;
         }
     }
 
-    protected void tick(Player player) {
-        if (player.getGameMode() == GameMode.SPECTATOR) return;
-        final World world = player.getWorld();
-        if (!plugin.isLocalHomeWorld(world)) {
+    /**
+     * Called every tick.  The current claim is only looked up again
+     * if the player changed blocks or world, or once every
+     * FULL_UPDATE_TICKS in case claims changed around them.
+     *
+     * @param tick the server wide tick counter
+     * @param location a reusable location
+     * @return true if the claim was updated
+     */
+    protected boolean tick(Player player, int tick, Location location) {
+        if (notifyTicks > 0) notifyTicks -= 1;
+        if (player.getGameMode() == GameMode.SPECTATOR) return false;
+        final HomeWorldHandle world = plugin.getWorldHandle(player.getWorld());
+        if (!world.isLocal()) {
+            currentWorld = null;
             currentHomeWorld = null;
             currentClaim = null;
-            ticks = 0;
             notifyTicks = 0;
-            return;
+            return false;
+        }
+        final boolean worldChanged = world != currentWorld;
+        if (worldChanged) {
+            currentWorld = world;
+            currentHomeWorld = plugin.findHomeWorld(world.getName());
+        }
+        player.getLocation(location);
+        final int x = location.getBlockX();
+        final int z = location.getBlockZ();
+        final int phase = tick + bucket;
+        final boolean moved = worldChanged || x != lastBlockX || z != lastBlockZ;
+        final boolean updated = moved || phase % FULL_UPDATE_TICKS == 0;
+        boolean kicked = false;
+        if (updated) {
+            lastBlockX = x;
+            lastBlockZ = z;
+            kicked = updateClaim(player, location, x, z, worldChanged);
+        }
+        if (!kicked && currentClaim != null && player.isGliding()) {
+            checkElytra(player);
+        }
+        if (!kicked && currentClaim != null && phase % AUTOGROW_TICKS == 0) {
+            tickAutoGrow(player);
+        }
+        if (!kicked && phase % NO_FLY_TICKS == 0) {
+            tickNoFlyZone(player, x, z);
         }
-        currentHomeWorld = plugin.findHomeWorld(world.getName());
-        final Location location = player.getLocation();
+        return updated;
+    }
+
+    /**
+     * Find the claim the player is in and react to any change.  The
+     * current claim is kept without a lookup if the player is still
+     * inside it, unless they changed worlds.
+     * @return true if the player was kicked
+     */
+    private boolean updateClaim(Player player, Location location, int x, int z, boolean worldChanged) {
         final Claim oldClaim = currentClaim;
         final Claim newClaim;
-        if (currentClaim != null && currentClaim.isValid() && currentClaim.contains(location)) {
+        if (!worldChanged && currentClaim != null && currentClaim.isValid() && currentClaim.getArea().contains(x, z)) {
             newClaim = currentClaim;
         } else {
-            newClaim = plugin.getClaimAt(location);
-        }
-        final boolean kicked;
-        if (newClaim != null) {
-            if (newClaim.getTrustType(player).isBan()) {
-                newClaim.kick(player);
-                Component msg = text("You cannot enter this claim!", TextColor.color(0xFF0000));
-                player.sendActionBar(msg);
-                player.sendMessage(msg);
-                plugin.highlightClaim(newClaim, player);
-                currentClaim = plugin.getClaimAt(location);
-                kicked = true;
-            } else {
-                currentClaim = newClaim;
-                kicked = false;
-            }
-        } else {
-            currentClaim = null;
-            kicked = false;
+            newClaim = plugin.getClaimCache().at(currentWorld, x, z);
         }
-        if (kicked) {
+        if (newClaim != null && newClaim.getTrustType(player).isBan()) {
+            newClaim.kick(player);
+            Component msg = text("You cannot enter this claim!", TextColor.color(0xFF0000));
+            player.sendActionBar(msg);
+            player.sendMessage(msg);
+            plugin.highlightClaim(newClaim, player);
+            currentClaim = plugin.getClaimAt(location);
             notifyTicks = MAX_NOTIFY;
+            return true;
         }
-        if (!kicked && oldClaim != currentClaim) {
+        currentClaim = newClaim;
+        if (oldClaim != currentClaim) {
             notifyClaimChange(player, oldClaim, currentClaim);
             notifyTicks = MAX_NOTIFY;
         }
-        if (!kicked && currentClaim != null) {
-            triggerClaimActions(player);
-        }
-        if (!kicked && ticks % 10 == 0) {
-            tickNoFlyZone(player);
-        }
-        if (notifyTicks > 0) notifyTicks -= 1;
-        ticks += 1;
+        return false;
     }
 
-    private void triggerClaimActions(Player player) {
-        if (currentClaim.isOwner(player)) {
-            if (currentClaim.getSetting(ClaimSetting.AUTOGROW)
-                && currentClaim.getBlocks() > currentClaim.getArea().size()
-                && (ticks % 100) == 0
-                && plugin.autoGrowClaim(currentClaim).isSuccessful()) {
-                plugin.highlightClaim(currentClaim, player);
-            }
+    private void tickAutoGrow(Player player) {
+        if (currentClaim.isOwner(player)
+            && currentClaim.getSetting(ClaimSetting.AUTOGROW)
+            && currentClaim.getBlocks() > currentClaim.getArea().size()
+            && plugin.autoGrowClaim(currentClaim).isSuccessful()) {
+            plugin.highlightClaim(currentClaim, player);
         }
-        if (player.isGliding() && !currentClaim.getSetting(ClaimSetting.ELYTRA)) {
+    }
+
+    private void checkElytra(Player player) {
+        if (!currentClaim.getSetting(ClaimSetting.ELYTRA)) {
             player.setGliding(false);
             Component msg = text("You cannot fly in this claim!", TextColor.color(0xFF0000));
             if (notify(player, msg)) {
@@ -325,23 +399,44 @@ public final class Session {
 
     protected void onPlayerHud(Player player, PlayerHudEvent event) {
         if (currentHomeWorld == null) return;
-        List<Component> footer = new ArrayList<>();
-        if (currentClaim != null) {
-            TrustType trust = currentClaim.getTrustType(player);
+        if (currentClaim == null) {
+            event.footer(PlayerHudPriority.DEFAULT, HUD_NO_CLAIM);
+            return;
+        }
+        if (hudClaim != currentClaim
+            || hudClaimEpoch != currentClaim.getHudEpoch()
+            || hudTrustEpoch != currentClaim.getTrustEpoch()
+            || hudGlobalEpoch != plugin.trustEpoch) {
+            updateHud(player);
+        }
+        event.footer(PlayerHudPriority.DEFAULT, hudFooter);
+        if (notifyTicks > 0) {
+            BossBar.Color bossColor = hudClass == HUD_BUILD ? BossBar.Color.BLUE : BossBar.Color.RED;
+            float progress = (float) notifyTicks / (float) MAX_NOTIFY;
+            event.bossbar(PlayerHudPriority.LOWEST, hudFooter.get(0), bossColor, BossBar.Overlay.PROGRESS, Set.of(), progress);
+        }
+    }
+
+    /**
+     * Resolve the HUD line of the current claim.  The line itself is
+     * shared by all players of the same trust class.
+     */
+    private void updateHud(Player player) {
+        TrustType trust = currentClaim.getTrustType(player);
+        hudClass = trust.canBuild() ? HUD_BUILD : (trust.canInteract() ? HUD_INTERACT : HUD_DENIED);
+        Component claimLine = currentClaim.hudLines[hudClass];
+        if (claimLine == null) {
             String claimName = currentClaim.getName() != null
                 ? currentClaim.getName()
                 : currentClaim.getOwnerName();
-            TextColor claimColor = trust.canBuild() ? BLUE : (trust.canInteract() ? AQUA : RED);
-            Component claimLine = join(noSeparators(), text(tiny("claim "), GRAY), text(claimName, claimColor));
-            footer.add(claimLine);
-            if (notifyTicks > 0) {
-                BossBar.Color bossColor = trust.canBuild() ? BossBar.Color.BLUE : BossBar.Color.RED;
-                float progress = (float) notifyTicks / (float) MAX_NOTIFY;
-                event.bossbar(PlayerHudPriority.LOWEST, claimLine, bossColor, BossBar.Overlay.PROGRESS, Set.of(), progress);
-            }
-        } else {
-            footer.add(join(noSeparators(), text(tiny("claim "), GRAY), text(tiny("none"), DARK_GRAY)));
+            TextColor claimColor = hudClass == HUD_BUILD ? BLUE : (hudClass == HUD_INTERACT ? AQUA : RED);
+            claimLine = join(noSeparators(), text(tiny("claim "), GRAY), text(claimName, claimColor));
+            currentClaim.hudLines[hudClass] = claimLine;
         }
-        event.footer(PlayerHudPriority.DEFAULT, footer);
+        hudFooter = List.of(claimLine);
+        hudClaim = currentClaim;
+        hudClaimEpoch = currentClaim.getHudEpoch();
+        hudTrustEpoch = currentClaim.getTrustEpoch();
+        hudGlobalEpoch = plugin.trustEpoch;
     }
 }
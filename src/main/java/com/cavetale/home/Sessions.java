@@ -5,12 +5,22 @@ import java.util.Map;
 import java.util.UUID;
 import lombok.RequiredArgsConstructor;
 import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 
 @RequiredArgsConstructor
 public final class Sessions {
     private final HomePlugin plugin;
     private final Map<UUID, Session> sessions = new HashMap<>();
+    private final Location scratchLocation = new Location(null, 0.0, 0.0, 0.0);
+    private int tick;
+    // Timings, see debug()
+    protected long tickCount;
+    protected long tickNanos;
+    protected long maxTickNanos;
+    protected long playerTicks;
+    protected long claimUpdates;
 
     protected void enable() {
         if (!plugin.localHomeWorlds.isEmpty()) {
@@ -22,6 +32,25 @@ public final class Sessions {
         return sessions.computeIfAbsent(player.getUniqueId(), u -> new Session(plugin, player));
     }
 
+    /**
+     * Get the session of a player without creating it.
+     */
+    public Session get(UUID uuid) {
+        return sessions.get(uuid);
+    }
+
+    /**
+     * Refresh the permission snapshot of every online player.
+     * @return true if any snapshot changed
+     */
+    protected boolean refreshPermissions() {
+        boolean result = false;
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            if (of(player).refreshPermissions(player)) result = true;
+        }
+        return result;
+    }
+
     public Session enter(Player player) {
         return of(player);
     }
@@ -33,8 +62,24 @@ public final class Sessions {
     }
 
     private void tick() {
+        final long start = System.nanoTime();
         for (Player player : Bukkit.getOnlinePlayers()) {
-            of(player).tick(player);
+            playerTicks += 1;
+            if (of(player).tick(player, tick, scratchLocation)) claimUpdates += 1;
         }
+        tick += 1;
+        final long nanos = System.nanoTime() - start;
+        tickCount += 1;
+        tickNanos += nanos;
+        if (nanos > maxTickNanos) maxTickNanos = nanos;
+    }
+
+    protected void debug(CommandSender sender) {
+        if (tickCount == 0) return;
+        sender.sendMessage("Session ticks: " + tickCount
+                           + String.format(" avg=%.1fus", (double) tickNanos / tickCount / 1000.0)
+                           + String.format(" max=%.1fus", (double) maxTickNanos / 1000.0)
+                           + " players=" + playerTicks
+                           + " claimUpdates=" + claimUpdates);
     }
 }
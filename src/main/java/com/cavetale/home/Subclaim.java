@@ -3,7 +3,9 @@ package com.cavetale.home;
 import com.cavetale.core.playercache.PlayerCache;
 import com.cavetale.core.util.Json;
 import com.cavetale.home.sql.SQLSubclaim;
+import com.cavetale.home.sql.SQLSubclaimTrust;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -12,28 +14,66 @@ import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import lombok.Getter;
+import org.bukkit.Bukkit;
 import org.bukkit.World;
 import org.bukkit.entity.Player;
 
+/**
+ * A subclaim inside a claim.
+ *
+ * Trusted players are kept in two parallel arrays sorted by UUID:
+ * trustKeys holds the most and least significant bits of each UUID
+ * and trustValues the SubclaimTrust ordinal.  Public trust has its
+ * own slot.  Each trust is one row in the subclaim_trust table, so
+ * a change writes just that row.
+ */
 public final class Subclaim {
     public static final UUID PUBLIC_UUID = new UUID(0, 0);
+    private static final SubclaimTrust[] SUBCLAIM_TRUSTS = SubclaimTrust.values();
+    /** TrustType by SubclaimTrust ordinal. */
+    private static final TrustType[] TRUST_TYPES = {
+        TrustType.NONE,
+        TrustType.INTERACT,
+        TrustType.CONTAINER,
+        TrustType.BUILD,
+        TrustType.CO_OWNER,
+        TrustType.OWNER,
+    };
+    private static final byte NO_TRUST = -1;
 
     private final HomePlugin plugin;
     @Getter private final Claim parent;
     @Getter private final SQLSubclaim row;
 
     @Getter private Area area;
-    private Tag tag;
+    /** UUID bits, two longs per trusted player, sorted. */
+    private long[] trustKeys = new long[0];
+    /** SubclaimTrust ordinals, parallel to trustKeys. */
+    private byte[] trustValues = new byte[0];
+    private int trustCount;
+    private byte publicTrust = NO_TRUST;
+    /** Set if the legacy tag holds trust not yet in the trust table. */
+    @Getter private boolean legacyTrust;
+    /** Effective trust cache, tied to the epochs of the parent claim. */
+    private final Map<UUID, Claim.CachedTrust> trustCache = new HashMap<>();
 
     /**
-     * Constructor to load from database.
+     * Constructor to load from database.  Trust still stored in the
+     * legacy tag is read here; see migrateLegacyTrust().
      */
     public Subclaim(final HomePlugin plugin, final Claim parent, final SQLSubclaim row) {
         this.plugin = plugin;
         this.parent = parent;
         this.row = row;
         this.area = row.getArea();
-        this.tag = Json.deserialize(row.getTag(), Tag.class, Tag::new);
+        Tag tag = Json.deserialize(row.getTag(), Tag.class, Tag::new);
+        if (tag.trusted != null && !tag.trusted.isEmpty()) {
+            legacyTrust = true;
+            for (Map.Entry<UUID, SubclaimTrust> entry : tag.trusted.entrySet()) {
+                if (entry.getKey() == null || entry.getValue() == null) continue;
+                putTrust(entry.getKey(), entry.getValue());
+            }
+        }
     }
 
     /**
@@ -44,9 +84,12 @@ public final class Subclaim {
         this.parent = parent;
         this.area = area;
         this.row = new SQLSubclaim(parent.getId(), world.getName(), area);
-        this.tag = new Tag();
     }
 
+    /**
+     * The legacy JSON tag, which used to hold all trust.  It is only
+     * read to migrate old rows.
+     */
     @Getter
     public static final class Tag {
         Map<UUID, SubclaimTrust> trusted = new HashMap<>();
@@ -69,17 +112,20 @@ public final class Subclaim {
     }
 
     public List<UUID> getTrustedUuids() {
-        return new ArrayList<>(tag.trusted.keySet());
+        List<UUID> result = new ArrayList<>(trustCount + 1);
+        if (publicTrust != NO_TRUST) result.add(PUBLIC_UUID);
+        for (int i = 0; i < trustCount; i += 1) {
+            result.add(new UUID(trustKeys[i * 2], trustKeys[i * 2 + 1]));
+        }
+        return result;
     }
 
     public Map<SubclaimTrust, Set<UUID>> getTrustedMap() {
         Map<SubclaimTrust, Set<UUID>> map = new EnumMap<>(SubclaimTrust.class);
         for (SubclaimTrust trust : SubclaimTrust.values()) map.put(trust, new HashSet<>());
-        for (Map.Entry<UUID, SubclaimTrust> entry : tag.trusted.entrySet()) {
-            UUID uuid = entry.getKey();
-            SubclaimTrust trust = entry.getValue();
-            Set<UUID> set = map.get(trust);
-            set.add(uuid);
+        if (publicTrust != NO_TRUST) map.get(SUBCLAIM_TRUSTS[publicTrust]).add(PUBLIC_UUID);
+        for (int i = 0; i < trustCount; i += 1) {
+            map.get(SUBCLAIM_TRUSTS[trustValues[i]]).add(new UUID(trustKeys[i * 2], trustKeys[i * 2 + 1]));
         }
         return map;
     }
@@ -91,31 +137,168 @@ public final class Subclaim {
 
     public SubclaimTrust getTrust(UUID uuid) {
         if (parent.isOwner(uuid)) return SubclaimTrust.OWNER;
-        SubclaimTrust trust = tag.trusted.get(uuid);
-        if (trust != null) return trust;
-        trust = tag.trusted.get(PUBLIC_UUID);
-        if (trust != null) return trust;
+        int index = findTrust(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+        if (index >= 0) return SUBCLAIM_TRUSTS[trustValues[index]];
+        if (publicTrust != NO_TRUST) return SUBCLAIM_TRUSTS[publicTrust];
         return SubclaimTrust.NONE;
     }
 
-    private void saveTag() {
-        row.setTag(Json.serialize(tag));
-        plugin.getDb().updateAsync(row, Set.of("tag"), res -> {
-                plugin.getConnectListener().broadcastClaimUpdate(parent);
-            });
+    /**
+     * Binary search for a UUID.
+     * @return the index, or (-(insertion point) - 1) if absent
+     */
+    private int findTrust(long msb, long lsb) {
+        int lo = 0;
+        int hi = trustCount - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long midMsb = trustKeys[mid * 2];
+            int cmp = midMsb != msb
+                ? Long.compare(midMsb, msb)
+                : Long.compare(trustKeys[mid * 2 + 1], lsb);
+            if (cmp < 0) {
+                lo = mid + 1;
+            } else if (cmp > 0) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(lo + 1);
+    }
+
+    /**
+     * Set trust in memory only.
+     * @return the previous trust, or null
+     */
+    private SubclaimTrust putTrust(UUID uuid, SubclaimTrust trust) {
+        if (uuid.equals(PUBLIC_UUID)) {
+            SubclaimTrust old = publicTrust != NO_TRUST ? SUBCLAIM_TRUSTS[publicTrust] : null;
+            publicTrust = (byte) trust.ordinal();
+            return old;
+        }
+        final long msb = uuid.getMostSignificantBits();
+        final long lsb = uuid.getLeastSignificantBits();
+        int index = findTrust(msb, lsb);
+        if (index >= 0) {
+            SubclaimTrust old = SUBCLAIM_TRUSTS[trustValues[index]];
+            trustValues[index] = (byte) trust.ordinal();
+            return old;
+        }
+        index = -index - 1;
+        if (trustCount == trustValues.length) {
+            int capacity = Math.max(2, trustCount * 2);
+            trustKeys = Arrays.copyOf(trustKeys, capacity * 2);
+            trustValues = Arrays.copyOf(trustValues, capacity);
+        }
+        System.arraycopy(trustKeys, index * 2, trustKeys, index * 2 + 2, (trustCount - index) * 2);
+        System.arraycopy(trustValues, index, trustValues, index + 1, trustCount - index);
+        trustKeys[index * 2] = msb;
+        trustKeys[index * 2 + 1] = lsb;
+        trustValues[index] = (byte) trust.ordinal();
+        trustCount += 1;
+        return null;
+    }
+
+    /**
+     * Remove trust in memory only.
+     * @return the previous trust, or null
+     */
+    private SubclaimTrust pullTrust(UUID uuid) {
+        if (uuid.equals(PUBLIC_UUID)) {
+            if (publicTrust == NO_TRUST) return null;
+            SubclaimTrust old = SUBCLAIM_TRUSTS[publicTrust];
+            publicTrust = NO_TRUST;
+            return old;
+        }
+        int index = findTrust(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+        if (index < 0) return null;
+        SubclaimTrust old = SUBCLAIM_TRUSTS[trustValues[index]];
+        System.arraycopy(trustKeys, index * 2 + 2, trustKeys, index * 2, (trustCount - index - 1) * 2);
+        System.arraycopy(trustValues, index + 1, trustValues, index, trustCount - index - 1);
+        trustCount -= 1;
+        return old;
+    }
+
+    /**
+     * Apply one row of the subclaim_trust table.  Rows take
+     * precedence over the legacy tag.
+     */
+    public void loadTrust(SQLSubclaimTrust trustRow) {
+        SubclaimTrust trust = trustRow.parseTrust();
+        if (trust == SubclaimTrust.NONE) {
+            pullTrust(trustRow.getTrustee());
+        } else {
+            putTrust(trustRow.getTrustee(), trust);
+        }
     }
 
     public void setTrust(UUID uuid, SubclaimTrust trust) {
-        tag.trusted.put(uuid, trust);
-        saveTag();
+        putTrust(uuid, trust);
+        parent.bumpTrustEpoch();
+        if (getId() == 0) return; // Saved by insertIntoDatabase
+        plugin.getDb().saveAsync(new SQLSubclaimTrust(parent.getId(), getId(), uuid, trust), res -> {
+                plugin.getConnectListener().broadcastClaimUpdate(parent);
+            });
     }
 
     public SubclaimTrust removeTrust(UUID uuid) {
-        SubclaimTrust result = tag.trusted.remove(uuid);
-        if (result != null) saveTag();
+        SubclaimTrust result = pullTrust(uuid);
+        if (result == null) return null;
+        parent.bumpTrustEpoch();
+        if (getId() == 0) return result;
+        final int subclaimId = getId();
+        plugin.getDb().scheduleAsyncTask(() -> {
+                plugin.getDb().find(SQLSubclaimTrust.class)
+                    .eq("subclaimId", subclaimId)
+                    .eq("trustee", uuid)
+                    .delete();
+                Bukkit.getScheduler().runTask(plugin, () -> {
+                        plugin.getConnectListener().broadcastClaimUpdate(parent);
+                    });
+            });
         return result;
     }
 
+    /**
+     * Write every trust of this subclaim to the trust table.
+     */
+    private void saveAllTrust() {
+        final int claimId = parent.getId();
+        final int subclaimId = getId();
+        if (publicTrust != NO_TRUST) {
+            plugin.getDb().saveAsync(new SQLSubclaimTrust(claimId, subclaimId, PUBLIC_UUID, SUBCLAIM_TRUSTS[publicTrust]), null);
+        }
+        for (int i = 0; i < trustCount; i += 1) {
+            UUID uuid = new UUID(trustKeys[i * 2], trustKeys[i * 2 + 1]);
+            plugin.getDb().saveAsync(new SQLSubclaimTrust(claimId, subclaimId, uuid, SUBCLAIM_TRUSTS[trustValues[i]]), null);
+        }
+    }
+
+    /**
+     * Move trust from the legacy tag to the trust table and empty the
+     * tag.
+     */
+    public void migrateLegacyTrust() {
+        saveAllTrust();
+        legacyTrust = false;
+        row.setTag("{}");
+        plugin.getDb().updateAsync(row, Set.of("tag"), null);
+    }
+
+    public int getTrustCount() {
+        return trustCount + (publicTrust != NO_TRUST ? 1 : 0);
+    }
+
+    /**
+     * Estimate the heap used by the trust arrays.
+     */
+    public long estimateTrustBytes() {
+        return 16L + 8L * trustKeys.length
+            + 16L + trustValues.length
+            + 8L; // count and public slot
+    }
+
     public static UUID cachedPlayerUuid(String name) {
         if (name.startsWith("*")) return PUBLIC_UUID;
         return PlayerCache.uuidForName(name);
@@ -127,25 +310,37 @@ public final class Subclaim {
     }
 
     public TrustType getTrustType(UUID uuid) {
-        SubclaimTrust trust = getTrust(uuid);
-        switch (trust) {
-        case NONE: return TrustType.NONE;
-        case ACCESS: return TrustType.INTERACT;
-        case CONTAINER: return TrustType.CONTAINER;
-        case BUILD: return TrustType.BUILD;
-        case CO_OWNER: return TrustType.CO_OWNER;
-        case OWNER: return TrustType.OWNER;
-        default: throw new IllegalStateException("trust=" + trust);
+        Claim.CachedTrust cached = trustCache.get(uuid);
+        if (cached != null && cached.isValid(parent.getTrustEpoch(), plugin.trustEpoch)) {
+            return cached.trustType;
         }
+        if (cached == null) {
+            if (trustCache.size() >= Claim.MAX_TRUST_CACHE) trustCache.clear();
+            cached = new Claim.CachedTrust();
+            trustCache.put(uuid, cached);
+        }
+        cached.trustType = computeTrustType(uuid);
+        cached.claimEpoch = parent.getTrustEpoch();
+        cached.globalEpoch = plugin.trustEpoch;
+        return cached.trustType;
+    }
+
+    private TrustType computeTrustType(UUID uuid) {
+        return TRUST_TYPES[getTrust(uuid).ordinal()];
     }
 
     public void insertIntoDatabase() {
         plugin.getDb().insertAsync(row, res -> {
+                saveAllTrust();
                 plugin.getConnectListener().broadcastClaimUpdate(parent);
             });
     }
 
     public void deleteFromDatabase() {
+        final int subclaimId = getId();
+        plugin.getDb().find(SQLSubclaimTrust.class)
+            .eq("subclaimId", subclaimId)
+            .deleteAsync(null);
         plugin.getDb().deleteAsync(row, res -> {
                 plugin.getConnectListener().broadcastClaimUpdate(parent);
             });
@@ -182,7 +182,7 @@ public final class SubclaimCommand extends AbstractCommand<HomePlugin> {
             }
         }
         Subclaim subclaim = new Subclaim(plugin, claim, world, area);
-        claim.getSubclaims().add(subclaim);
+        claim.addSubclaim(subclaim);
         subclaim.insertIntoDatabase();
         plugin.sessions.of(player).setPlayerInteractCallback(null);
         plugin.highlightSubclaim(subclaim, player);
@@ -0,0 +1,98 @@
+package com.cavetale.home;
+
+import com.cavetale.home.struct.LongObjectMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Spatial index of the subclaims of one claim.  Subclaims are
+ * grouped by world, and within each world a grid of 16x16 cells
+ * points at the subclaims overlapping each cell.  Subclaims too
+ * large for the grid are kept in a short list and scanned.
+ *
+ * The index is rebuilt lazily on the first query after any change.
+ */
+final class SubclaimIndex {
+    private static final int CELL_BITS = 4;
+    /** Subclaims covering more cells than this skip the grid. */
+    private static final int MAX_CELLS_PER_SUBCLAIM = 256;
+    private final Map<String, WorldSubclaims> worlds = new HashMap<>();
+    private boolean dirty = true;
+
+    private static final class WorldSubclaims {
+        private final List<Subclaim> list = new ArrayList<>();
+        private final List<Subclaim> view = Collections.unmodifiableList(list);
+        private final LongObjectMap<Subclaim[]> cells = new LongObjectMap<>();
+        private final List<Subclaim> large = new ArrayList<>();
+    }
+
+    /**
+     * Call after any subclaim was added, removed, or resized.
+     */
+    protected void invalidate() {
+        dirty = true;
+    }
+
+    protected Subclaim at(List<Subclaim> subclaims, String world, int x, int z) {
+        if (subclaims.isEmpty()) return null;
+        if (dirty) rebuild(subclaims);
+        WorldSubclaims ws = worlds.get(world);
+        if (ws == null) return null;
+        Subclaim[] cell = ws.cells.get(LongObjectMap.pack(x >> CELL_BITS, z >> CELL_BITS));
+        if (cell != null) {
+            for (Subclaim subclaim : cell) {
+                if (subclaim.getArea().contains(x, z)) return subclaim;
+            }
+        }
+        for (Subclaim subclaim : ws.large) {
+            if (subclaim.getArea().contains(x, z)) return subclaim;
+        }
+        return null;
+    }
+
+    /**
+     * Get the subclaims in one world.  The result must not be
+     * modified.
+     */
+    protected List<Subclaim> inWorld(List<Subclaim> subclaims, String world) {
+        if (subclaims.isEmpty()) return List.of();
+        if (dirty) rebuild(subclaims);
+        WorldSubclaims ws = worlds.get(world);
+        return ws != null ? ws.view : List.of();
+    }
+
+    private void rebuild(List<Subclaim> subclaims) {
+        worlds.clear();
+        for (Subclaim subclaim : subclaims) {
+            WorldSubclaims ws = worlds.computeIfAbsent(subclaim.getWorld(), w -> new WorldSubclaims());
+            ws.list.add(subclaim);
+            Area area = subclaim.getArea();
+            final int ax = area.ax >> CELL_BITS;
+            final int az = area.ay >> CELL_BITS;
+            final int bx = area.bx >> CELL_BITS;
+            final int bz = area.by >> CELL_BITS;
+            if ((long) (bx - ax + 1) * (long) (bz - az + 1) > MAX_CELLS_PER_SUBCLAIM) {
+                ws.large.add(subclaim);
+                continue;
+            }
+            for (int z = az; z <= bz; z += 1) {
+                for (int x = ax; x <= bx; x += 1) {
+                    long key = LongObjectMap.pack(x, z);
+                    Subclaim[] cell = ws.cells.get(key);
+                    if (cell == null) {
+                        cell = new Subclaim[] {subclaim};
+                    } else {
+                        cell = Arrays.copyOf(cell, cell.length + 1);
+                        cell[cell.length - 1] = subclaim;
+                    }
+                    ws.cells.put(key, cell);
+                }
+            }
+        }
+        dirty = false;
+    }
+}
@@ -3,7 +3,6 @@ package com.cavetale.home;
 import com.cavetale.core.command.RemotePlayer;
 import com.cavetale.core.event.player.PluginPlayerEvent;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.function.Consumer;
@@ -75,10 +74,10 @@ final class WildTask {
         if (size < 0) {
             throw new RuntimeException("World border makes no sense: " + size);
         }
-        List<Claim> worldClaims = plugin.findClaimsInWorld(world.getName());
+        final String worldName = plugin.getWorldHandle(world).getClaimWorld();
         boolean foundSpot = false;
         for (int i = 0; i < 100; i += 1) {
-            if (findUnclaimedSpot(worldClaims, cx, cz, size, margin)) {
+            if (findUnclaimedSpot(worldName, cx, cz, size, margin)) {
                 foundSpot = true;
                 break;
             }
@@ -90,15 +89,13 @@ final class WildTask {
         }
     }
 
-    private boolean findUnclaimedSpot(List<Claim> worldClaims,
+    private boolean findUnclaimedSpot(final String worldName,
                               final int cx, final int cz,
                               final int size, final int margin) {
         int x = cx - size / 2 + plugin.random.nextInt(size);
         int z = cz - size / 2 + plugin.random.nextInt(size);
-        for (Claim claim : worldClaims) {
-            if (claim.getArea().isWithin(x, z, margin)) {
-                return false;
-            }
+        if (!plugin.getClaimCache().findConflicts(worldName, new Area(x, z, x, z), null, margin).isEmpty()) {
+            return false;
         }
         blockX = x;
         blockZ = z;
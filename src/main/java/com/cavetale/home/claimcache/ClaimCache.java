@@ -2,12 +2,23 @@ package com.cavetale.home.claimcache;
 
 import com.cavetale.home.Area;
 import com.cavetale.home.Claim;
+import com.cavetale.home.struct.LongObjectMap;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import lombok.Getter;
+import org.bukkit.World;
+import org.bukkit.block.Block;
 import org.bukkit.command.CommandSender;
 
 /**
@@ -17,11 +28,68 @@ import org.bukkit.command.CommandSender;
 public final class ClaimCache {
     @Getter protected final List<Claim> allClaims = new ArrayList<>();
     protected final Map<String, SpatialClaimCache> worlds = new HashMap<>();
+    /** Local world names, mirror worlds included, mapped to the cache they read from. */
+    protected final Map<String, SpatialClaimCache> localWorlds = new HashMap<>();
+    /** Mirror worlds mapped to the world whose claims they share. */
+    protected Map<String, String> mirrorWorlds = Map.of();
+    /** Resolved world handles by world identity. */
+    protected final Map<World, HomeWorldHandle> handles = new IdentityHashMap<>();
+    /** Claims by id.  Claims without an id yet are not indexed. */
+    protected final LongObjectMap<Claim> idMap = new LongObjectMap<>();
+    /** Claims by primary owner, newest first. */
+    protected final Map<UUID, List<Claim>> ownerMap = new HashMap<>();
+    /** Claims by trustee, including bans. */
+    protected final Map<UUID, List<Claim>> trusteeMap = new HashMap<>();
+    /** Claims granting any public trust. */
+    protected final Set<Claim> publicClaims = new LinkedHashSet<>();
+    /** Spawn policy bit: part of the chunk is unclaimed. */
+    public static final byte SPAWN_UNCLAIMED = 1;
+    /** Spawn policy bit: part of the chunk is in a claim allowing mob spawning. */
+    public static final byte SPAWN_ALLOWED = 2;
+    /** Spawn policy bit: part of the chunk is in a claim denying mob spawning. */
+    public static final byte SPAWN_DENIED = 4;
+    protected static final Comparator<Claim> NEWEST_FIRST = (a, b) -> b.getCreated().compareTo(a.getCreated());
 
-    public void initialize(Iterable<String> localWorlds) {
-        for (String world : localWorlds) {
-            worlds.put(world, new SpatialClaimCache());
+    /**
+     * Set up the local worlds.
+     * @param localWorldNames the local home worlds
+     * @param mirrorWorlds maps mirror worlds to the world whose claims they share
+     * @param indexTypes picks the spatial index backend of each world
+     */
+    public void initialize(Iterable<String> localWorldNames, Map<String, String> mirrorWorlds,
+                           Function<String, ClaimIndexType> indexTypes) {
+        for (String world : localWorldNames) {
+            worlds.put(world, new SpatialClaimCache(indexTypes.apply(world)));
         }
+        for (String world : localWorldNames) {
+            SpatialClaimCache spatial = worlds.get(mirrorWorlds.getOrDefault(world, world));
+            if (spatial != null) localWorlds.put(world, spatial);
+        }
+        this.mirrorWorlds = mirrorWorlds;
+        handles.clear();
+    }
+
+    /**
+     * Get the handle of a world.  The first call per world resolves
+     * it by name; later calls are a single identity map probe.
+     */
+    public HomeWorldHandle handle(World world) {
+        HomeWorldHandle result = handles.get(world);
+        if (result == null) {
+            String name = world.getName();
+            SpatialClaimCache spatial = localWorlds.get(name);
+            result = new HomeWorldHandle(name, mirrorWorlds.getOrDefault(name, name), spatial != null, spatial);
+            handles.put(world, result);
+        }
+        return result;
+    }
+
+    /**
+     * Forget the handle of a world, which must happen when it is
+     * unloaded.
+     */
+    public void forgetHandle(World world) {
+        handles.remove(world);
     }
 
     public List<Claim> getAllLocalClaims() {
@@ -34,25 +102,184 @@ public final class ClaimCache {
 
     public void add(Claim claim) {
         allClaims.add(claim);
+        if (claim.getId() > 0) idMap.put(claim.getId(), claim);
+        indexPlayers(claim);
         SpatialClaimCache cache = worlds.get(claim.getWorld());
         if (cache != null) cache.insert(claim);
     }
 
+    /**
+     * Add many claims at once, as when loading from the database.
+     * Each world's index is built in one go.
+     */
+    public void addAll(List<Claim> claims) {
+        Map<SpatialClaimCache, List<Claim>> spatialClaims = new IdentityHashMap<>();
+        for (Claim claim : claims) {
+            allClaims.add(claim);
+            if (claim.getId() > 0) idMap.put(claim.getId(), claim);
+            indexPlayers(claim);
+            SpatialClaimCache cache = worlds.get(claim.getWorld());
+            if (cache != null) spatialClaims.computeIfAbsent(cache, c -> new ArrayList<>()).add(claim);
+        }
+        for (Map.Entry<SpatialClaimCache, List<Claim>> entry : spatialClaims.entrySet()) {
+            entry.getKey().insertAll(entry.getValue());
+        }
+    }
+
     public void remove(Claim claim) {
         allClaims.remove(claim);
+        if (claim.getId() > 0 && idMap.get(claim.getId()) == claim) idMap.remove(claim.getId());
+        unindexPlayers(claim);
         SpatialClaimCache cache = worlds.get(claim.getWorld());
         if (cache != null) cache.remove(claim);
     }
 
+    /**
+     * Called once a freshly inserted claim has received its database
+     * id.
+     */
+    public void updateId(Claim claim) {
+        if (claim.getId() > 0) idMap.put(claim.getId(), claim);
+    }
+
+    public Claim byId(int claimId) {
+        return idMap.get(claimId);
+    }
+
+    /**
+     * Add a claim to the owner, trustee, and public indexes.  Must be
+     * paired with unindexPlayers() around any bulk change of the
+     * owner, trust, or settings, such as a reload.
+     */
+    public void indexPlayers(Claim claim) {
+        List<Claim> owned = ownerMap.computeIfAbsent(claim.getOwner(), u -> new ArrayList<>());
+        int index = Collections.binarySearch(owned, claim, NEWEST_FIRST);
+        owned.add(index < 0 ? -index - 1 : index, claim);
+        for (UUID trustee : claim.getTrusted().keySet()) {
+            addTrustee(claim, trustee);
+        }
+        updatePublic(claim);
+    }
+
+    public void unindexPlayers(Claim claim) {
+        removeFromMultimap(ownerMap, claim.getOwner(), claim);
+        for (UUID trustee : claim.getTrusted().keySet()) {
+            removeTrustee(claim, trustee);
+        }
+        publicClaims.remove(claim);
+    }
+
+    public void updateOwner(Claim claim, UUID oldOwner) {
+        removeFromMultimap(ownerMap, oldOwner, claim);
+        List<Claim> owned = ownerMap.computeIfAbsent(claim.getOwner(), u -> new ArrayList<>());
+        int index = Collections.binarySearch(owned, claim, NEWEST_FIRST);
+        owned.add(index < 0 ? -index - 1 : index, claim);
+    }
+
+    public void addTrustee(Claim claim, UUID trustee) {
+        List<Claim> list = trusteeMap.computeIfAbsent(trustee, u -> new ArrayList<>());
+        if (!list.contains(claim)) list.add(claim);
+    }
+
+    public void removeTrustee(Claim claim, UUID trustee) {
+        removeFromMultimap(trusteeMap, trustee, claim);
+    }
+
+    /**
+     * Call when a claim setting changes which may grant public
+     * trust.
+     */
+    public void updatePublic(Claim claim) {
+        if (claim.getPublicTrust().isTrust()) {
+            publicClaims.add(claim);
+        } else {
+            publicClaims.remove(claim);
+        }
+    }
+
+    /**
+     * Get all claims granting any public trust, as a read-only view.
+     */
+    public Set<Claim> getPublicClaims() {
+        return Collections.unmodifiableSet(publicClaims);
+    }
+
+    private static void removeFromMultimap(Map<UUID, List<Claim>> map, UUID key, Claim claim) {
+        List<Claim> list = map.get(key);
+        if (list == null) return;
+        list.remove(claim);
+        if (list.isEmpty()) map.remove(key);
+    }
+
+    /**
+     * Get the claims owned by a player, newest first.  The result
+     * must not be modified.
+     */
+    public List<Claim> findOwnedClaims(UUID owner) {
+        List<Claim> list = ownerMap.get(owner);
+        return list != null ? Collections.unmodifiableList(list) : List.of();
+    }
+
+    /**
+     * Get the claims in which a player has an explicit trust entry,
+     * including bans.  The result must not be modified.
+     */
+    public List<Claim> findTrusteeClaims(UUID trustee) {
+        List<Claim> list = trusteeMap.get(trustee);
+        return list != null ? Collections.unmodifiableList(list) : List.of();
+    }
+
+    public int countOwnedClaims(UUID owner) {
+        List<Claim> list = ownerMap.get(owner);
+        return list != null ? list.size() : 0;
+    }
+
     public void resize(Claim claim, Area oldArea, Area newArea) {
         SpatialClaimCache cache = worlds.get(claim.getWorld());
         if (cache == null) return;
         cache.update(claim, oldArea, newArea);
     }
 
+    /**
+     * Get the spawn policy bits of a Minecraft chunk in a local
+     * world.  A single bit means the whole chunk shares that policy.
+     * Non-local worlds count as unclaimed.
+     */
+    public byte spawnPolicy(HomeWorldHandle handle, int chunkX, int chunkZ) {
+        return handle.spatial != null
+            ? handle.spatial.getSpawnPolicy(chunkX, chunkZ)
+            : SPAWN_UNCLAIMED;
+    }
+
+    /**
+     * Call when a claim setting changes.
+     */
+    public void updateSettings(Claim claim) {
+        SpatialClaimCache cache = worlds.get(claim.getWorld());
+        if (cache != null) cache.updateSettings(claim);
+    }
+
+    /**
+     * Check if a point in a local world is close to a claim which
+     * denies elytra flight.
+     */
+    public boolean isNearNoFlyZone(HomeWorldHandle handle, int x, int z) {
+        return handle.spatial != null && handle.spatial.isNearNoFlyZone(x, z);
+    }
+
+    public void onChunkUnload(HomeWorldHandle handle, int chunkX, int chunkZ) {
+        if (handle.spatial != null) handle.spatial.onChunkUnload(chunkX, chunkZ);
+    }
+
     public void clear() {
         allClaims.clear();
         worlds.clear();
+        localWorlds.clear();
+        idMap.clear();
+        ownerMap.clear();
+        trusteeMap.clear();
+        publicClaims.clear();
+        handles.clear();
     }
 
     public Claim at(final String world, int x, int z) {
@@ -61,12 +288,145 @@ public final class ClaimCache {
         return spatial.findClaimAt(x, z);
     }
 
+    public Claim at(HomeWorldHandle handle, int x, int z) {
+        return handle.spatial != null ? handle.spatial.findClaimAt(x, z) : null;
+    }
+
+    /**
+     * Check if two points in the same chunk are known to share the
+     * same claim, or to be both unclaimed, without asking the
+     * spatial index.  False means unknown.
+     */
+    public boolean isKnownSame(HomeWorldHandle handle, int ax, int az, int bx, int bz) {
+        return handle.spatial != null && handle.spatial.isKnownSame(ax, az, bx, bz);
+    }
+
+    /**
+     * Check if a claim in a local world overlaps no other claim, so
+     * that containment in its area decides membership.
+     */
+    public boolean isExclusive(HomeWorldHandle handle, Claim claim) {
+        return handle.spatial != null && handle.spatial.isExclusive(claim);
+    }
+
+    /**
+     * Like at() but takes the name of any local world, resolving
+     * mirror worlds.  Non-local worlds yield null.
+     */
+    public Claim atLocal(final String world, int x, int z) {
+        SpatialClaimCache spatial = localWorlds.get(world);
+        if (spatial == null) return null;
+        return spatial.findClaimAt(x, z);
+    }
+
+    /**
+     * Resolve many points in a local world at once, see atLocal().
+     * Element i of the result holds the claim at (xs[i], zs[i]), or
+     * null.
+     */
+    public Claim[] atAllLocal(final String world, int[] xs, int[] zs, int count) {
+        Claim[] result = new Claim[count];
+        SpatialClaimCache spatial = localWorlds.get(world);
+        if (spatial == null) return result;
+        spatial.findClaimsAt(xs, zs, count, result);
+        return result;
+    }
+
+    /**
+     * Resolve a list of blocks in a local world at once.  Element i
+     * of the result belongs to the i-th block.
+     */
+    public Claim[] atAllLocal(final String world, Collection<Block> blocks) {
+        SpatialClaimCache spatial = localWorlds.get(world);
+        return spatial != null ? atAll(spatial, blocks) : new Claim[blocks.size()];
+    }
+
+    public Claim[] atAll(HomeWorldHandle handle, Collection<Block> blocks) {
+        return handle.spatial != null ? atAll(handle.spatial, blocks) : new Claim[blocks.size()];
+    }
+
+    private static Claim[] atAll(SpatialClaimCache spatial, Collection<Block> blocks) {
+        final int count = blocks.size();
+        int[] xs = new int[count];
+        int[] zs = new int[count];
+        int i = 0;
+        for (Block block : blocks) {
+            xs[i] = block.getX();
+            zs[i] = block.getZ();
+            i += 1;
+        }
+        Claim[] result = new Claim[count];
+        spatial.findClaimsAt(xs, zs, count, result);
+        return result;
+    }
+
     public List<Claim> within(final String world, Area area) {
         SpatialClaimCache spatial = worlds.get(world);
         if (spatial == null) return List.of();
         return spatial.findClaimsWithin(area);
     }
 
+    /**
+     * Find the claims which would conflict with a claim covering the
+     * given area: all claims overlapping it, or coming closer to it
+     * than the margin.
+     * @param ignoreClaim a claim to skip, usually the one being
+     *   resized, or null
+     * @param margin the required distance; 0 for a plain overlap
+     *   check
+     */
+    public List<Claim> findConflicts(final String world, Area area, Claim ignoreClaim, int margin) {
+        SpatialClaimCache spatial = worlds.get(world);
+        if (spatial == null) return List.of();
+        Area query = margin > 0
+            ? new Area(area.ax - margin, area.ay - margin, area.bx + margin, area.by + margin)
+            : area;
+        List<Claim> result = spatial.findClaimsWithin(query);
+        if (ignoreClaim != null) result.remove(ignoreClaim);
+        return result;
+    }
+
+    /**
+     * Find how many block rings an area may grow by, up to maxSteps,
+     * before it would overlap another claim.  One index query
+     * covers the whole range.
+     */
+    public int findMaxGrowth(final String world, Area area, Claim ignoreClaim, int maxSteps) {
+        int result = maxSteps;
+        for (Claim other : findConflicts(world, area, ignoreClaim, maxSteps)) {
+            Area o = other.getArea();
+            // Growing by gap or more steps would overlap.
+            int gap = Math.max(Math.max(o.ax - area.bx, area.ax - o.bx),
+                               Math.max(o.ay - area.by, area.ay - o.by));
+            result = Math.min(result, gap - 1);
+        }
+        return Math.max(0, result);
+    }
+
+    /**
+     * Find up to k claims matching the predicate, nearest first, by
+     * box distance from the given point.
+     */
+    public List<Claim> nearest(final String world, int x, int z, int k, int maxDistance, Predicate<Claim> predicate) {
+        SpatialClaimCache spatial = worlds.get(world);
+        if (spatial == null) return List.of();
+        return spatial.findNearest(x, z, k, maxDistance, predicate);
+    }
+
+    public List<Claim> nearest(final String world, int x, int z, int k, Predicate<Claim> predicate) {
+        return nearest(world, x, z, k, Integer.MAX_VALUE, predicate);
+    }
+
+    /**
+     * Find all claims matching the predicate within a box distance,
+     * which is the distance Area#isWithin uses.
+     */
+    public List<Claim> withinRadius(final String world, int x, int z, int radius, Predicate<Claim> predicate) {
+        SpatialClaimCache spatial = worlds.get(world);
+        if (spatial == null) return List.of();
+        return spatial.findWithinRadius(x, z, radius, predicate);
+    }
+
     public List<Claim> inWorld(final String world) {
         SpatialClaimCache spatial = worlds.get(world);
         if (spatial == null) return List.of();
@@ -79,16 +439,33 @@ public final class ClaimCache {
             sender.sendMessage("No cache: " + worldName);
             return;
         }
-        List<SpatialClaimCache.XYSlot> slots = spatial.getAllSlots();
-        Collections.sort(slots, (a, b) -> Integer.compare(a.claims.size(), b.claims.size()));
-        int len = SpatialClaimCache.CHUNK_SIZE;
-        int claimCount = 0;
-        for (SpatialClaimCache.XYSlot slot : slots) {
-            claimCount += slot.claims.size();
-            sender.sendMessage("Slot " + slot.x + "," + slot.y
-                               + " (" + (slot.x * len) + "," + (slot.y * len) + ")"
-                               + ": " + slot.claims.size() + " claims");
+        sender.sendMessage("Index: " + spatial.index.getType()
+                           + ", " + spatial.allClaims.size() + " claims"
+                           + ", ~" + (spatial.index.estimateBytes() / 1024L) + " KiB");
+        if (spatial.index instanceof SlotIndex slotIndex) {
+            List<SlotIndex.XYSlot> slots = slotIndex.getAllSlots();
+            Collections.sort(slots, (a, b) -> Integer.compare(a.claims.size(), b.claims.size()));
+            int len = SlotIndex.CHUNK_SIZE;
+            int claimCount = 0;
+            for (SlotIndex.XYSlot slot : slots) {
+                claimCount += slot.claims.size();
+                sender.sendMessage("Slot " + slot.x + "," + slot.y
+                                   + " (" + (slot.x * len) + "," + (slot.y * len) + ")"
+                                   + ": " + slot.claims.size() + " claims");
+            }
+            sender.sendMessage("Total " + slots.size() + " slots, " + claimCount + " claims");
+            sender.sendMessage("Memory: slot map ~" + (slotIndex.estimateBytes() / 1024L) + " KiB"
+                               + " (capacity " + slotIndex.slots.capacity() + ")"
+                               + ", legacy twin lists ~" + (slotIndex.estimateLegacyBytes() / 1024L) + " KiB");
+        } else if (spatial.index instanceof RTreeIndex rtree) {
+            sender.sendMessage("R-tree rebuilds: " + rtree.rebuildCount);
         }
-        sender.sendMessage("Total " + slots.size() + " slots, " + claimCount + " claims");
+        sender.sendMessage("Chunk table: " + spatial.chunks.size() + " chunks"
+                           + ", " + spatial.chunkHits + " hits"
+                           + ", " + spatial.chunkMisses + " misses");
+        sender.sendMessage("Spawn policies: " + spatial.spawnPolicies.size() + " chunks");
+        sender.sendMessage("No-fly zones: " + spatial.noFlyZones.zoneCount + " zones"
+                           + ", " + spatial.noFlyZones.slotCount() + " slots"
+                           + ", " + spatial.noFlyZones.rebuildCount + " rebuilds");
     }
 }
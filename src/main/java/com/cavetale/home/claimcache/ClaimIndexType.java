@@ -0,0 +1,26 @@
+package com.cavetale.home.claimcache;
+
+/**
+ * The available spatial index backends, selected per world in the
+ * config.
+ */
+public enum ClaimIndexType {
+    /** Fixed 256x256 slots.  Large claims are copied into every slot they touch. */
+    SLOTS,
+    /** Sort-Tile-Recursive packed R-tree, rebuilt after enough changes. */
+    RTREE;
+
+    public static ClaimIndexType of(String name) {
+        for (ClaimIndexType it : values()) {
+            if (it.name().equalsIgnoreCase(name)) return it;
+        }
+        return null;
+    }
+
+    protected SpatialIndex create() {
+        switch (this) {
+        case RTREE: return new RTreeIndex();
+        case SLOTS: default: return new SlotIndex();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.cavetale.home.claimcache;
+
+import lombok.Getter;
+
+/**
+ * Everything the claim lookups need to know about one Bukkit world,
+ * resolved once by name and then cached by world identity.  See
+ * ClaimCache#handle(World).
+ */
+@Getter
+public final class HomeWorldHandle {
+    /** The name of the world itself. */
+    private final String name;
+    /** The name claims in this world are stored under, which differs for mirror worlds. */
+    private final String claimWorld;
+    private final boolean local;
+    private final boolean mirror;
+    /** The spatial cache claims are read from, or null if not local. */
+    protected final SpatialClaimCache spatial;
+
+    HomeWorldHandle(final String name, final String claimWorld, final boolean local, final SpatialClaimCache spatial) {
+        this.name = name;
+        this.claimWorld = claimWorld;
+        this.local = local;
+        this.mirror = !name.equals(claimWorld);
+        this.spatial = spatial;
+    }
+}
@@ -0,0 +1,76 @@
+package com.cavetale.home.claimcache;
+
+import com.cavetale.home.Area;
+import com.cavetale.home.Claim;
+import com.cavetale.home.ClaimSetting;
+import com.cavetale.home.struct.LongObjectMap;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The areas of all claims which deny elytra flight, inflated by the
+ * warning distance and kept in fixed size slots.  Whether a point
+ * is near a no-fly claim then takes one slot lookup.
+ *
+ * The zones are rebuilt lazily on the first query after any change.
+ */
+final class NoFlyZones {
+    /** How close to a no-fly claim flying players get warned. */
+    protected static final int BUFFER = 64;
+    protected static final int SLOT_BITS = 8;
+    private final LongObjectMap<Area[]> slots = new LongObjectMap<>();
+    private boolean dirty = true;
+    protected int zoneCount;
+    protected int rebuildCount;
+
+    /**
+     * Call after any claim was added, removed, resized, or changed
+     * its settings.
+     */
+    protected void invalidate() {
+        dirty = true;
+    }
+
+    protected boolean contains(List<Claim> claims, int x, int z) {
+        if (dirty) rebuild(claims);
+        Area[] areas = slots.get(LongObjectMap.pack(x >> SLOT_BITS, z >> SLOT_BITS));
+        if (areas == null) return false;
+        for (Area area : areas) {
+            if (area.contains(x, z)) return true;
+        }
+        return false;
+    }
+
+    private void rebuild(List<Claim> claims) {
+        slots.clear();
+        zoneCount = 0;
+        for (Claim claim : claims) {
+            if (claim.getSetting(ClaimSetting.ELYTRA)) continue;
+            Area zone = claim.getArea().outset(BUFFER);
+            zoneCount += 1;
+            final int ax = zone.ax >> SLOT_BITS;
+            final int az = zone.ay >> SLOT_BITS;
+            final int bx = zone.bx >> SLOT_BITS;
+            final int bz = zone.by >> SLOT_BITS;
+            for (int z = az; z <= bz; z += 1) {
+                for (int x = ax; x <= bx; x += 1) {
+                    long key = LongObjectMap.pack(x, z);
+                    Area[] areas = slots.get(key);
+                    if (areas == null) {
+                        areas = new Area[] {zone};
+                    } else {
+                        areas = Arrays.copyOf(areas, areas.length + 1);
+                        areas[areas.length - 1] = zone;
+                    }
+                    slots.put(key, areas);
+                }
+            }
+        }
+        rebuildCount += 1;
+        dirty = false;
+    }
+
+    protected int slotCount() {
+        return slots.size();
+    }
+}
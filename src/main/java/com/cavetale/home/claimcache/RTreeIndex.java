@@ -0,0 +1,289 @@
+package com.cavetale.home.claimcache;
+
+import com.cavetale.home.Area;
+import com.cavetale.home.Claim;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+
+/**
+ * Spatial index in the form of a Sort-Tile-Recursive packed
+ * R-tree.  Every claim is stored exactly once regardless of its
+ * size.
+ *
+ * The packed tree is immutable.  Inserted claims go to a small
+ * pending list which is scanned linearly, and removed claims are
+ * marked dead in place.  Once enough changes pile up, the tree is
+ * rebuilt right away by the change, so queries, which mostly run in
+ * protection events, never rebuild and never scan more than
+ * MAX_PENDING pending claims.
+ */
+final class RTreeIndex implements SpatialIndex {
+    /** Children per node. */
+    protected static final int NODE_SIZE = 16;
+    /** Most claims kept pending before a rebuild. */
+    protected static final int MAX_PENDING = 32;
+    /** Minimum number of dead entries before a rebuild. */
+    protected static final int MIN_REBUILD = 32;
+    // Packed entries, in STR order
+    private Claim[] claims = new Claim[0];
+    private int[] entryBoxes = new int[0];
+    private boolean[] dead = new boolean[0];
+    private int deadCount;
+    /**
+     * Bounding boxes of the inner levels, bottom up.  Node i of
+     * level k covers the children NODE_SIZE * i until NODE_SIZE * (i
+     * + 1) of level k - 1, or of the entries for level 0.  Each box
+     * is 4 ints: ax, ay, bx, by.
+     */
+    private final List<int[]> levels = new ArrayList<>();
+    /** Index of each packed claim within the entries. */
+    private final Map<Claim, Integer> entryIndex = new IdentityHashMap<>();
+    /** Claims inserted since the last rebuild. */
+    private final List<Claim> pending = new ArrayList<>();
+    private final List<Area> pendingAreas = new ArrayList<>();
+    protected int rebuildCount;
+
+    @Override
+    public void insert(Claim claim, Area area) {
+        pending.add(claim);
+        pendingAreas.add(area);
+        if (pending.size() > MAX_PENDING) rebuild();
+    }
+
+    @Override
+    public void insertAll(List<Claim> newClaims) {
+        for (Claim claim : newClaims) {
+            pending.add(claim);
+            pendingAreas.add(claim.getArea());
+        }
+        rebuild();
+    }
+
+    @Override
+    public void remove(Claim claim, Area area) {
+        for (int i = 0; i < pending.size(); i += 1) {
+            if (pending.get(i) != claim) continue;
+            pending.remove(i);
+            pendingAreas.remove(i);
+            return;
+        }
+        Integer index = entryIndex.get(claim);
+        if (index != null && !dead[index]) {
+            dead[index] = true;
+            deadCount += 1;
+            if (deadCount >= Math.max(MIN_REBUILD, claims.length / 8)) rebuild();
+        }
+    }
+
+    @Override
+    public Claim findClaimAt(int x, int z) {
+        for (int i = 0; i < pending.size(); i += 1) {
+            if (pendingAreas.get(i).contains(x, z)) return pending.get(i);
+        }
+        return findClaimAt(levels.size() - 1, 0, x, z);
+    }
+
+    private Claim findClaimAt(int level, int node, int x, int z) {
+        int[] boxes = level >= 0 ? levels.get(level) : entryBoxes;
+        int count = boxes.length / 4;
+        int from = node * NODE_SIZE;
+        int to = Math.min(count, from + NODE_SIZE);
+        if (level == levels.size() - 1) {
+            // The root level, which may be the entries themselves,
+            // is scanned in full.
+            from = 0;
+            to = count;
+        }
+        for (int i = from; i < to; i += 1) {
+            int j = i * 4;
+            if (x < boxes[j] || z < boxes[j + 1] || x > boxes[j + 2] || z > boxes[j + 3]) continue;
+            if (level >= 0) {
+                Claim result = findClaimAt(level - 1, i, x, z);
+                if (result != null) return result;
+            } else if (!dead[i]) {
+                return claims[i];
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public List<Claim> findClaimsWithin(Area area) {
+        List<Claim> result = new ArrayList<>();
+        findClaimsWithin(levels.size() - 1, 0, area, result);
+        for (int i = 0; i < pending.size(); i += 1) {
+            if (pendingAreas.get(i).overlaps(area)) result.add(pending.get(i));
+        }
+        return result;
+    }
+
+    private void findClaimsWithin(int level, int node, Area area, List<Claim> result) {
+        int[] boxes = level >= 0 ? levels.get(level) : entryBoxes;
+        int count = boxes.length / 4;
+        int from = node * NODE_SIZE;
+        int to = Math.min(count, from + NODE_SIZE);
+        if (level == levels.size() - 1) {
+            from = 0;
+            to = count;
+        }
+        for (int i = from; i < to; i += 1) {
+            int j = i * 4;
+            if (area.bx < boxes[j] || area.by < boxes[j + 1] || area.ax > boxes[j + 2] || area.ay > boxes[j + 3]) continue;
+            if (level >= 0) {
+                findClaimsWithin(level - 1, i, area, result);
+            } else if (!dead[i]) {
+                result.add(claims[i]);
+            }
+        }
+    }
+
+    /**
+     * Best-first search: nodes and entries are visited in order of
+     * their box distance, so the search ends as soon as k matches
+     * are found.
+     */
+    @Override
+    public List<Claim> findNearest(int x, int z, int k, int maxDistance, Predicate<Claim> predicate) {
+        List<Claim> result = new ArrayList<>();
+        if (k <= 0) return result;
+        // Each item is {distance, level, index}.  Level -1 is an
+        // entry, level -2 a pending claim.
+        PriorityQueue<int[]> queue = new PriorityQueue<>((a, b) -> Integer.compare(a[0], b[0]));
+        int[] root = levels.isEmpty() ? entryBoxes : levels.get(levels.size() - 1);
+        for (int i = 0; i < root.length / 4; i += 1) {
+            offer(queue, root, levels.size() - 1, i, x, z, maxDistance);
+        }
+        for (int i = 0; i < pending.size(); i += 1) {
+            int dist = pendingAreas.get(i).boxDistanceToPoint(x, z);
+            if (dist <= maxDistance) queue.add(new int[] {dist, -2, i});
+        }
+        while (!queue.isEmpty()) {
+            int[] item = queue.poll();
+            int level = item[1];
+            int index = item[2];
+            if (level == -2) {
+                Claim claim = pending.get(index);
+                if (predicate.test(claim)) result.add(claim);
+            } else if (level == -1) {
+                if (!dead[index] && predicate.test(claims[index])) result.add(claims[index]);
+            } else {
+                int[] boxes = level > 0 ? levels.get(level - 1) : entryBoxes;
+                int to = Math.min(boxes.length / 4, (index + 1) * NODE_SIZE);
+                for (int i = index * NODE_SIZE; i < to; i += 1) {
+                    offer(queue, boxes, level - 1, i, x, z, maxDistance);
+                }
+            }
+            if (result.size() >= k) break;
+        }
+        return result;
+    }
+
+    private static void offer(PriorityQueue<int[]> queue, int[] boxes, int level, int index,
+                              int x, int z, int maxDistance) {
+        int j = index * 4;
+        int dx = Math.max(0, Math.max(boxes[j] - x, x - boxes[j + 2]));
+        int dz = Math.max(0, Math.max(boxes[j + 1] - z, z - boxes[j + 3]));
+        int dist = Math.max(dx, dz);
+        if (dist <= maxDistance) queue.add(new int[] {dist, level, index});
+    }
+
+    private void rebuild() {
+        List<Claim> live = new ArrayList<>(claims.length - deadCount + pending.size());
+        for (int i = 0; i < claims.length; i += 1) {
+            if (!dead[i]) live.add(claims[i]);
+        }
+        live.addAll(pending);
+        pending.clear();
+        pendingAreas.clear();
+        pack(live.toArray(new Claim[0]));
+        rebuildCount += 1;
+    }
+
+    /**
+     * Sort-Tile-Recursive packing: sort by x center, cut into
+     * vertical slices of about sqrt(leaves) leaves each, and sort
+     * each slice by z center.  Consecutive runs of NODE_SIZE then
+     * form the leaves, and the upper levels group consecutive nodes
+     * the same way.
+     */
+    private void pack(Claim[] array) {
+        final int n = array.length;
+        Arrays.sort(array, (a, b) -> Integer.compare(a.getArea().ax + a.getArea().bx,
+                                                     b.getArea().ax + b.getArea().bx));
+        final int leafCount = (n + NODE_SIZE - 1) / NODE_SIZE;
+        final int sliceCount = Math.max(1, (int) Math.ceil(Math.sqrt(leafCount)));
+        final int sliceSize = sliceCount * NODE_SIZE;
+        for (int from = 0; from < n; from += sliceSize) {
+            Arrays.sort(array, from, Math.min(n, from + sliceSize),
+                        (a, b) -> Integer.compare(a.getArea().ay + a.getArea().by,
+                                                  b.getArea().ay + b.getArea().by));
+        }
+        claims = array;
+        dead = new boolean[n];
+        deadCount = 0;
+        entryBoxes = new int[n * 4];
+        entryIndex.clear();
+        for (int i = 0; i < n; i += 1) {
+            Area area = array[i].getArea();
+            entryBoxes[i * 4] = area.ax;
+            entryBoxes[i * 4 + 1] = area.ay;
+            entryBoxes[i * 4 + 2] = area.bx;
+            entryBoxes[i * 4 + 3] = area.by;
+            entryIndex.put(array[i], i);
+        }
+        levels.clear();
+        int[] below = entryBoxes;
+        while (below.length / 4 > NODE_SIZE) {
+            int childCount = below.length / 4;
+            int nodeCount = (childCount + NODE_SIZE - 1) / NODE_SIZE;
+            int[] boxes = new int[nodeCount * 4];
+            for (int i = 0; i < nodeCount; i += 1) {
+                int ax = Integer.MAX_VALUE;
+                int ay = Integer.MAX_VALUE;
+                int bx = Integer.MIN_VALUE;
+                int by = Integer.MIN_VALUE;
+                int to = Math.min(childCount, (i + 1) * NODE_SIZE);
+                for (int c = i * NODE_SIZE; c < to; c += 1) {
+                    ax = Math.min(ax, below[c * 4]);
+                    ay = Math.min(ay, below[c * 4 + 1]);
+                    bx = Math.max(bx, below[c * 4 + 2]);
+                    by = Math.max(by, below[c * 4 + 3]);
+                }
+                boxes[i * 4] = ax;
+                boxes[i * 4 + 1] = ay;
+                boxes[i * 4 + 2] = bx;
+                boxes[i * 4 + 3] = by;
+            }
+            levels.add(boxes);
+            below = boxes;
+        }
+    }
+
+    @Override
+    public void clear() {
+        pack(new Claim[0]);
+        pending.clear();
+        pendingAreas.clear();
+    }
+
+    @Override
+    public long estimateBytes() {
+        long result = 16L + 4L * claims.length; // claims
+        result += 16L + 4L * entryBoxes.length;
+        result += 16L + dead.length;
+        for (int[] boxes : levels) result += 16L + 4L * boxes.length;
+        result += 48L * entryIndex.size(); // IdentityHashMap slots and boxed ints
+        result += 2L * (16L + 4L * pending.size());
+        return result;
+    }
+
+    @Override
+    public ClaimIndexType getType() {
+        return ClaimIndexType.RTREE;
+    }
+}
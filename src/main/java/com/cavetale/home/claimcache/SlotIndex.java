@@ -0,0 +1,208 @@
+package com.cavetale.home.claimcache;
+
+import com.cavetale.home.Area;
+import com.cavetale.home.Claim;
+import com.cavetale.home.struct.LongObjectMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import lombok.Value;
+
+/**
+ * Spatial index of fixed size slots.  Slots are kept in a hash map
+ * keyed by their packed coordinates, so memory scales with the
+ * number of occupied slots rather than their distance from the
+ * origin.
+ */
+final class SlotIndex implements SpatialIndex {
+    protected static final int CHUNK_BITS = 8;
+    protected static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    protected final LongObjectMap<Slot> slots = new LongObjectMap<>();
+
+    @Override
+    public void insert(final Claim claim, final Area area) {
+        applySlots(area, (slotX, slotY) -> {
+                long key = LongObjectMap.pack(slotX, slotY);
+                Slot slot = slots.get(key);
+                if (slot == null) {
+                    slot = new Slot();
+                    slots.put(key, slot);
+                }
+                slot.add(claim);
+            });
+    }
+
+    @Override
+    public void remove(final Claim claim, final Area area) {
+        applySlots(area, (slotX, slotY) -> {
+                long key = LongObjectMap.pack(slotX, slotY);
+                Slot slot = slots.get(key);
+                if (slot == null) return;
+                slot.remove(claim);
+                if (slot.size == 0) slots.remove(key);
+            });
+    }
+
+    @Override
+    public Claim findClaimAt(int x, int z) {
+        Slot slot = slots.get(LongObjectMap.pack(x >> CHUNK_BITS, z >> CHUNK_BITS));
+        if (slot == null) return null;
+        final Claim[] claims = slot.claims;
+        for (int i = 0; i < slot.size; i += 1) {
+            if (claims[i].getArea().contains(x, z)) return claims[i];
+        }
+        return null;
+    }
+
+    /**
+     * A claim spanning several slots is only reported by the slot
+     * holding the lower corner of its intersection with the query
+     * area, so no duplicate check is needed.
+     */
+    @Override
+    public List<Claim> findClaimsWithin(Area area) {
+        int ax = area.ax >> CHUNK_BITS;
+        int bx = area.bx >> CHUNK_BITS;
+        int ay = area.ay >> CHUNK_BITS;
+        int by = area.by >> CHUNK_BITS;
+        List<Claim> result = new ArrayList<>();
+        for (int y = ay; y <= by; y += 1) {
+            for (int x = ax; x <= bx; x += 1) {
+                Slot slot = slots.get(LongObjectMap.pack(x, y));
+                if (slot == null) continue;
+                for (int i = 0; i < slot.size; i += 1) {
+                    Claim claim = slot.claims[i];
+                    Area other = claim.getArea();
+                    if (!area.overlaps(other)) continue;
+                    if ((Math.max(area.ax, other.ax) >> CHUNK_BITS) != x) continue;
+                    if ((Math.max(area.ay, other.ay) >> CHUNK_BITS) != y) continue;
+                    result.add(claim);
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void clear() {
+        slots.clear();
+    }
+
+    @Override
+    public ClaimIndexType getType() {
+        return ClaimIndexType.SLOTS;
+    }
+
+    @FunctionalInterface
+    private interface SlotConsumer {
+        void accept(int slotX, int slotY);
+    }
+
+    private static void applySlots(final Area area, final SlotConsumer consumer) {
+        final int ay = area.ay >> CHUNK_BITS;
+        final int by = area.by >> CHUNK_BITS;
+        final int ax = area.ax >> CHUNK_BITS;
+        final int bx = area.bx >> CHUNK_BITS;
+        for (int slotY = ay; slotY <= by; slotY += 1) {
+            for (int slotX = ax; slotX <= bx; slotX += 1) {
+                consumer.accept(slotX, slotY);
+            }
+        }
+    }
+
+    /**
+     * The claims overlapping one slot, kept in a plain array.
+     */
+    protected static final class Slot {
+        protected Claim[] claims = new Claim[2];
+        protected int size;
+
+        protected void add(Claim claim) {
+            for (int i = 0; i < size; i += 1) {
+                if (claims[i] == claim) return;
+            }
+            if (size == claims.length) claims = Arrays.copyOf(claims, size * 2);
+            claims[size++] = claim;
+        }
+
+        protected void remove(Claim claim) {
+            for (int i = 0; i < size; i += 1) {
+                if (claims[i] != claim) continue;
+                System.arraycopy(claims, i + 1, claims, i, size - i - 1);
+                claims[--size] = null;
+                return;
+            }
+        }
+
+        protected List<Claim> toList() {
+            return Arrays.asList(Arrays.copyOf(claims, size));
+        }
+    }
+
+    /**
+     * Object returned by getAllSlots(), which exists for
+     * ClaimCache#debug.
+     */
+    @Value
+    protected static final class XYSlot {
+        protected final int x;
+        protected final int y;
+        protected final List<Claim> claims;
+    }
+
+    protected List<XYSlot> getAllSlots() {
+        List<XYSlot> result = new ArrayList<>(slots.size());
+        slots.forEach((key, slot) -> {
+                result.add(new XYSlot(LongObjectMap.unpackX(key), LongObjectMap.unpackZ(key), slot.toList()));
+            });
+        return result;
+    }
+
+    /**
+     * Estimate the heap used by the slot map and its slots.
+     */
+    @Override
+    public long estimateBytes() {
+        long result = slots.estimateBytes();
+        final long[] slotBytes = new long[1];
+        slots.forEach((key, slot) -> slotBytes[0] += 16L + 16L + 4L * slot.claims.length);
+        return result + slotBytes[0];
+    }
+
+    /**
+     * Estimate the heap the previous nested twin list layout would
+     * have needed for the same slots.  Each row list and each column
+     * list was padded with nulls from 0 out to its furthest occupied
+     * index, in both directions.
+     */
+    protected long estimateLegacyBytes() {
+        final LongObjectMap<int[]> rows = new LongObjectMap<>();
+        final int[] yRange = {0, 0};
+        slots.forEach((key, slot) -> {
+                int x = LongObjectMap.unpackX(key);
+                int y = LongObjectMap.unpackZ(key);
+                int[] row = rows.get(y);
+                if (row == null) {
+                    row = new int[] {0, 0};
+                    rows.put(y, row);
+                }
+                if (x >= 0) {
+                    row[0] = Math.max(row[0], x + 1);
+                } else {
+                    row[1] = Math.max(row[1], -x);
+                }
+                if (y >= 0) {
+                    yRange[0] = Math.max(yRange[0], y + 1);
+                } else {
+                    yRange[1] = Math.max(yRange[1], -y);
+                }
+            });
+        // Two ArrayLists (~24 bytes each plus a 16 byte array header)
+        // per twin list, 4 bytes per cell.
+        final long listOverhead = 2L * (24L + 16L);
+        final long[] result = {listOverhead + 4L * (yRange[0] + yRange[1])};
+        rows.forEach((y, row) -> result[0] += 16L + listOverhead + 4L * (row[0] + row[1]));
+        slots.forEach((key, slot) -> result[0] += 16L + 40L + 4L * slot.claims.length);
+        return result[0];
+    }
+}
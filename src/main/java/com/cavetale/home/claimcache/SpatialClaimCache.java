@@ -2,179 +2,344 @@ package com.cavetale.home.claimcache;
 
 import com.cavetale.home.Area;
 import com.cavetale.home.Claim;
+import com.cavetale.home.ClaimSetting;
+import com.cavetale.home.struct.LongObjectMap;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.function.Consumer;
-import lombok.Value;
+import java.util.Map;
+import java.util.function.Predicate;
 
 /**
  * For fast claim location lookup.
  * One cache per world.
+ *
+ * Claims are stored in a pluggable SpatialIndex.  On top of it sits
+ * a lazily filled chunk table which remembers for each 16x16 chunk
+ * whether it is unclaimed, entirely inside one claim, or mixed.
+ * Only mixed chunks need to ask the index.
  */
 final class SpatialClaimCache {
-    protected static final int CHUNK_BITS = 8;
-    protected static final int CHUNK_SIZE = 1 << CHUNK_BITS;
-    protected final YList ylist = new YList();
+    /** Bits of a Minecraft chunk, which the chunk table is keyed by. */
+    protected static final int MC_CHUNK_BITS = 4;
+    /** Upper bound on chunk table entries before it is reset. */
+    protected static final int MAX_CHUNK_ENTRIES = 1 << 18;
+    /** Chunk table value: no claim touches the chunk. */
+    protected static final Object UNCLAIMED = new Object();
+    /** Chunk table value: more than one claim or a claim border. */
+    protected static final Object MIXED = new Object();
+    /** Beyond this many candidates, batch lookups go point by point. */
+    protected static final int MAX_BATCH_CANDIDATES = 8;
+    protected final SpatialIndex index;
+    /** UNCLAIMED, MIXED, or the one Claim covering the chunk. */
+    protected final LongObjectMap<Object> chunks = new LongObjectMap<>();
     /** All claims in this world. */
     protected final List<Claim> allClaims = new ArrayList<>();
+    protected long chunkHits;
+    protected long chunkMisses;
+    /** Spawn policy bits of each chunk, see ClaimCache#SPAWN_UNCLAIMED. */
+    protected final LongObjectMap<Byte> spawnPolicies = new LongObjectMap<>();
+    protected final NoFlyZones noFlyZones = new NoFlyZones();
+    /** Whether a claim overlaps no other, see isExclusive. */
+    protected final Map<Claim, Boolean> exclusive = new IdentityHashMap<>();
+    /**
+     * Bounding box of every claim ever inserted.  It never shrinks,
+     * which is fine for its purpose of bounding nearest searches.
+     */
+    protected int extentAx = Integer.MAX_VALUE;
+    protected int extentAy = Integer.MAX_VALUE;
+    protected int extentBx = Integer.MIN_VALUE;
+    protected int extentBy = Integer.MIN_VALUE;
+
+    SpatialClaimCache(final ClaimIndexType indexType) {
+        this.index = indexType.create();
+    }
 
     public void insert(Claim claim) {
-        applySlots(claim.getArea(), true, slot -> slot.claims.add(claim));
+        index.insert(claim, claim.getArea());
+        growExtent(claim.getArea());
+        invalidateChunks(claim.getArea());
+        noFlyZones.invalidate();
+        exclusive.clear();
         allClaims.add(claim);
     }
 
+    /**
+     * Insert many claims at once, as when loading from the database.
+     */
+    public void insertAll(List<Claim> claims) {
+        if (claims.isEmpty()) return;
+        index.insertAll(claims);
+        for (Claim claim : claims) growExtent(claim.getArea());
+        chunks.clear();
+        spawnPolicies.clear();
+        noFlyZones.invalidate();
+        exclusive.clear();
+        allClaims.addAll(claims);
+    }
+
     public void remove(Claim claim) {
-        applySlots(claim.getArea(), false, slot -> slot.claims.remove(claim));
+        index.remove(claim, claim.getArea());
+        invalidateChunks(claim.getArea());
+        noFlyZones.invalidate();
+        exclusive.clear();
         allClaims.remove(claim);
     }
 
     public void update(Claim claim, Area oldArea, Area newArea) {
-        applySlots(claim.getArea(), false, slot -> slot.claims.remove(claim));
-        applySlots(claim.getArea(), true, slot -> slot.claims.add(claim));
+        index.remove(claim, oldArea);
+        index.insert(claim, newArea);
+        growExtent(newArea);
+        invalidateChunks(oldArea);
+        invalidateChunks(newArea);
+        noFlyZones.invalidate();
+        exclusive.clear();
     }
 
     public Claim findClaimAt(int worldX, int worldZ) {
-        int slotX = worldX >> CHUNK_BITS;
-        int slotY = worldZ >> CHUNK_BITS;
-        Slot slot = findSlot(slotX, slotY, false);
-        if (slot == null) return null;
-        for (Claim claim : slot.claims) {
-            if (claim.getArea().contains(worldX, worldZ)) return claim;
+        final long chunkKey = LongObjectMap.pack(worldX >> MC_CHUNK_BITS, worldZ >> MC_CHUNK_BITS);
+        Object state = chunks.get(chunkKey);
+        if (state == null) {
+            chunkMisses += 1;
+            state = computeChunk(worldX >> MC_CHUNK_BITS, worldZ >> MC_CHUNK_BITS);
+            if (chunks.size() >= MAX_CHUNK_ENTRIES) chunks.clear();
+            chunks.put(chunkKey, state);
+        } else {
+            chunkHits += 1;
         }
-        return null;
+        if (state == UNCLAIMED) return null;
+        if (state != MIXED) return (Claim) state;
+        return index.findClaimAt(worldX, worldZ);
     }
 
     public List<Claim> findClaimsWithin(Area area) {
-        int ax = area.ax >> CHUNK_BITS;
-        int bx = area.bx >> CHUNK_BITS;
-        int ay = area.ay >> CHUNK_BITS;
-        int by = area.by >> CHUNK_BITS;
-        List<Claim> result = new ArrayList<>();
-        for (int y = ay; y <= by; y += 1) {
+        return index.findClaimsWithin(area);
+    }
+
+    /**
+     * Check if the chunk table already knows that two points share
+     * the same claim, or are both unclaimed.  False means unknown.
+     */
+    public boolean isKnownSame(int ax, int az, int bx, int bz) {
+        final int chunkX = ax >> MC_CHUNK_BITS;
+        final int chunkZ = az >> MC_CHUNK_BITS;
+        if (chunkX != (bx >> MC_CHUNK_BITS) || chunkZ != (bz >> MC_CHUNK_BITS)) return false;
+        Object state = chunks.get(LongObjectMap.pack(chunkX, chunkZ));
+        return state != null && state != MIXED;
+    }
+
+    /**
+     * Check if a claim overlaps no other claim, in which case every
+     * point inside its area belongs to it.  Overlaps are normally
+     * removed at load time, but only if deleteOverlappingClaims is
+     * enabled.  The answer is cached until any claim changes.
+     */
+    public boolean isExclusive(Claim claim) {
+        Boolean result = exclusive.get(claim);
+        if (result == null) {
+            result = index.findClaimsWithin(claim.getArea()).size() == 1;
+            exclusive.put(claim, result);
+        }
+        return result;
+    }
+
+    /**
+     * Get the spawn policy bits of a Minecraft chunk.
+     */
+    public byte getSpawnPolicy(int chunkX, int chunkZ) {
+        final long chunkKey = LongObjectMap.pack(chunkX, chunkZ);
+        Byte policy = spawnPolicies.get(chunkKey);
+        if (policy == null) {
+            policy = computeSpawnPolicy(chunkX, chunkZ);
+            if (spawnPolicies.size() >= MAX_CHUNK_ENTRIES) spawnPolicies.clear();
+            spawnPolicies.put(chunkKey, policy);
+        }
+        return policy;
+    }
+
+    private byte computeSpawnPolicy(int chunkX, int chunkZ) {
+        final int ax = chunkX << MC_CHUNK_BITS;
+        final int az = chunkZ << MC_CHUNK_BITS;
+        final int bx = ax + (1 << MC_CHUNK_BITS) - 1;
+        final int bz = az + (1 << MC_CHUNK_BITS) - 1;
+        final Area chunkArea = new Area(ax, az, bx, bz);
+        List<Claim> claims = index.findClaimsWithin(chunkArea);
+        if (claims.isEmpty()) return ClaimCache.SPAWN_UNCLAIMED;
+        byte result = 0;
+        for (Claim claim : claims) {
+            result |= claim.getSetting(ClaimSetting.MOB_SPAWNING)
+                ? ClaimCache.SPAWN_ALLOWED
+                : ClaimCache.SPAWN_DENIED;
+        }
+        if (claims.size() == 1 && claims.get(0).getArea().contains(chunkArea)) return result;
+        for (int z = az; z <= bz; z += 1) {
             for (int x = ax; x <= bx; x += 1) {
-                Slot slot = findSlot(x, y, false);
-                if (slot == null) continue;
-                for (Claim claim : slot.claims) {
-                    if (!result.contains(claim) && area.overlaps(claim.getArea())) {
-                        result.add(claim);
+                boolean covered = false;
+                for (Claim claim : claims) {
+                    if (claim.getArea().contains(x, z)) {
+                        covered = true;
+                        break;
                     }
                 }
+                if (!covered) return (byte) (result | ClaimCache.SPAWN_UNCLAIMED);
             }
         }
         return result;
     }
 
-    private void applySlots(final Area area, final boolean create, final Consumer<Slot> consumer) {
-        final int ay = area.ay >> CHUNK_BITS;
-        final int by = area.by >> CHUNK_BITS;
-        final int ax = area.ax >> CHUNK_BITS;
-        final int bx = area.bx >> CHUNK_BITS;
-        for (int slotY = ay; slotY <= by; slotY += 1) {
-            for (int slotX = ax; slotX <= bx; slotX += 1) {
-                Slot slot = findSlot(slotX, slotY, create);
-                if (slot != null) consumer.accept(slot);
-            }
-        }
+    /**
+     * Forget what depends on the settings of a claim, which must
+     * happen when they change.
+     */
+    public void updateSettings(Claim claim) {
+        invalidate(spawnPolicies, claim.getArea());
+        noFlyZones.invalidate();
     }
 
-    private Slot findSlot(int slotX, int slotY, boolean create) {
-        XList xlist = ylist.get(slotY, create);
-        return xlist != null
-            ? xlist.get(slotX, create)
-            : null;
+    /**
+     * Check if a point is within the warning distance of a claim
+     * which denies elytra flight.
+     */
+    public boolean isNearNoFlyZone(int x, int z) {
+        return noFlyZones.contains(allClaims, x, z);
+    }
+
+    public void onChunkUnload(int chunkX, int chunkZ) {
+        spawnPolicies.remove(LongObjectMap.pack(chunkX, chunkZ));
     }
 
     /**
-     * The twin list contains 2 lists, one for positive, one for
-     * negative indexes. Thus, it can grow in both directions.
-     *
-     * @param <T> Contained elements.
+     * Find up to k claims matching the predicate, nearest first.
+     * The search never looks further than the extent of all claims.
      */
-    private abstract static class TwinList<T> {
-        protected final List<T> positive = new ArrayList<>();
-        protected final List<T> negative = new ArrayList<>();
+    public List<Claim> findNearest(int x, int z, int k, int maxDistance, Predicate<Claim> predicate) {
+        if (allClaims.isEmpty() || k <= 0) return List.of();
+        long reach = Math.max(Math.max((long) x - extentAx, (long) extentBx - x),
+                              Math.max((long) z - extentAy, (long) extentBy - z));
+        int distance = (int) Math.max(0L, Math.min((long) maxDistance, reach));
+        return index.findNearest(x, z, k, distance, predicate);
+    }
 
-        public int min() {
-            return -negative.size();
+    /**
+     * Find all claims matching the predicate within a box distance.
+     */
+    public List<Claim> findWithinRadius(int x, int z, int radius, Predicate<Claim> predicate) {
+        List<Claim> result = new ArrayList<>();
+        for (Claim claim : index.findClaimsWithin(new Area(x - radius, z - radius, x + radius, z + radius))) {
+            if (predicate.test(claim)) result.add(claim);
         }
+        return result;
+    }
 
-        public int max() {
-            return positive.size();
-        }
+    private void growExtent(Area area) {
+        extentAx = Math.min(extentAx, area.ax);
+        extentAy = Math.min(extentAy, area.ay);
+        extentBx = Math.max(extentBx, area.bx);
+        extentBy = Math.max(extentBy, area.by);
+    }
 
-        public final T get(final int index, final boolean create) {
-            return index < 0
-                ? getHelper(negative, -index - 1, create)
-                : getHelper(positive, index, create);
+    /**
+     * Resolve many points at once.  The bounding box is queried
+     * once; if it is unclaimed or inside one claim, every point gets
+     * the same answer.  Otherwise the few candidates are scanned per
+     * point, or, if there are many, the chunk table is consulted.
+     */
+    public void findClaimsAt(final int[] xs, final int[] zs, final int count, final Claim[] result) {
+        if (count == 0) return;
+        int ax = xs[0];
+        int az = zs[0];
+        int bx = ax;
+        int bz = az;
+        for (int i = 1; i < count; i += 1) {
+            ax = Math.min(ax, xs[i]);
+            bx = Math.max(bx, xs[i]);
+            az = Math.min(az, zs[i]);
+            bz = Math.max(bz, zs[i]);
         }
-
-        public final T remove(final int index) {
-            if (index < 0) {
-                final int index2 = -index - 1;
-                if (index2 >= negative.size()) return null;
-                T result = negative.get(index2);
-                negative.set(index2, null);
-                return result;
-            } else {
-                if (index >= positive.size()) return null;
-                T result = positive.get(index);
-                positive.set(index, null);
-                return result;
-            }
+        final Area bbox = new Area(ax, az, bx, bz);
+        final List<Claim> candidates = findClaimsWithin(bbox);
+        if (candidates.isEmpty()) {
+            Arrays.fill(result, 0, count, null);
+            return;
         }
-
-        private T getHelper(final List<T> list, final int index, final boolean create) {
-            if (!create && index >= list.size()) return null;
-            while (index >= list.size()) list.add(null);
-            T result = list.get(index);
-            if (create && result == null) {
-                result = create();
-                list.set(index, result);
+        if (candidates.size() == 1 && candidates.get(0).getArea().contains(bbox)) {
+            Arrays.fill(result, 0, count, candidates.get(0));
+            return;
+        }
+        if (candidates.size() > MAX_BATCH_CANDIDATES) {
+            for (int i = 0; i < count; i += 1) {
+                result[i] = findClaimAt(xs[i], zs[i]);
             }
-            return result;
+            return;
         }
-
-        protected abstract T create();
-    }
-
-    protected static final class YList extends TwinList<XList> {
-        @Override protected XList create() {
-            return new XList();
+        final int size = candidates.size();
+        for (int i = 0; i < count; i += 1) {
+            Claim found = null;
+            for (int j = 0; j < size; j += 1) {
+                Claim claim = candidates.get(j);
+                if (claim.getArea().contains(xs[i], zs[i])) {
+                    found = claim;
+                    break;
+                }
+            }
+            result[i] = found;
         }
     }
 
-    protected static final class XList extends TwinList<Slot> {
-        @Override protected Slot create() {
-            return new Slot();
-        }
+    /**
+     * Classify one chunk.
+     */
+    private Object computeChunk(int chunkX, int chunkZ) {
+        final int ax = chunkX << MC_CHUNK_BITS;
+        final int az = chunkZ << MC_CHUNK_BITS;
+        final int bx = ax + (1 << MC_CHUNK_BITS) - 1;
+        final int bz = az + (1 << MC_CHUNK_BITS) - 1;
+        List<Claim> claims = index.findClaimsWithin(new Area(ax, az, bx, bz));
+        if (claims.isEmpty()) return UNCLAIMED;
+        if (claims.size() > 1) return MIXED;
+        Area area = claims.get(0).getArea();
+        if (area.ax > ax || area.bx < bx || area.ay > az || area.by < bz) return MIXED;
+        return claims.get(0);
     }
 
-    protected static final class Slot {
-        protected final List<Claim> claims = new ArrayList<>();
+    /**
+     * Drop the chunk table and spawn policy entries overlapping an
+     * area.
+     */
+    private void invalidateChunks(Area area) {
+        invalidate(chunks, area);
+        invalidate(spawnPolicies, area);
     }
 
     /**
-     * Object returned by getAllSlots(), which exists for
-     * ClaimCache#debug.
+     * Drop the entries of a chunk keyed map overlapping an area.
+     * Walk whichever is smaller, the area's chunks or the map.
      */
-    @Value
-    protected static final class XYSlot {
-        protected final int x;
-        protected final int y;
-        protected final List<Claim> claims;
-    }
-
-    protected List<XYSlot> getAllSlots() {
-        List<XYSlot> result = new ArrayList<>();
-        for (int y = ylist.min(); y <= ylist.max(); y += 1) {
-            XList xlist = ylist.get(y, false);
-            if (xlist == null) continue;
-            for (int x = xlist.min(); x <= xlist.max(); x += 1) {
-                Slot slot = xlist.get(x, false);
-                if (slot == null) continue;
-                result.add(new XYSlot(x, y, slot.claims));
+    private static void invalidate(LongObjectMap<?> chunks, Area area) {
+        if (chunks.isEmpty()) return;
+        final int ax = area.ax >> MC_CHUNK_BITS;
+        final int az = area.ay >> MC_CHUNK_BITS;
+        final int bx = area.bx >> MC_CHUNK_BITS;
+        final int bz = area.by >> MC_CHUNK_BITS;
+        final long count = (long) (bx - ax + 1) * (long) (bz - az + 1);
+        if (count <= chunks.size()) {
+            for (int z = az; z <= bz; z += 1) {
+                for (int x = ax; x <= bx; x += 1) {
+                    chunks.remove(LongObjectMap.pack(x, z));
+                }
             }
+            return;
+        }
+        final long[] doomed = new long[chunks.size()];
+        final int[] doomedCount = new int[1];
+        chunks.forEach((key, value) -> {
+                int x = LongObjectMap.unpackX(key);
+                int z = LongObjectMap.unpackZ(key);
+                if (x >= ax && x <= bx && z >= az && z <= bz) doomed[doomedCount[0]++] = key;
+            });
+        for (int i = 0; i < doomedCount[0]; i += 1) {
+            chunks.remove(doomed[i]);
         }
-        return result;
     }
 }
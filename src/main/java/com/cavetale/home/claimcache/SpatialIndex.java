@@ -0,0 +1,75 @@
+package com.cavetale.home.claimcache;
+
+import com.cavetale.home.Area;
+import com.cavetale.home.Claim;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * A spatial index backend for the claims of one world.  The area
+ * of a claim is passed explicitly because a resize removes the
+ * claim under its old area after the claim already reports the new
+ * one.
+ */
+interface SpatialIndex {
+    int NEAREST_START_RADIUS = 32;
+
+    void insert(Claim claim, Area area);
+
+    /**
+     * Insert many claims under their current areas, as when loading
+     * from the database.
+     */
+    default void insertAll(List<Claim> claims) {
+        for (Claim claim : claims) {
+            insert(claim, claim.getArea());
+        }
+    }
+
+    void remove(Claim claim, Area area);
+
+    /**
+     * Find the claim containing a point, or null.
+     */
+    Claim findClaimAt(int x, int z);
+
+    /**
+     * Find all claims overlapping an area.  Every claim is reported
+     * at most once.
+     */
+    List<Claim> findClaimsWithin(Area area);
+
+    /**
+     * Find up to k claims matching the predicate, nearest first, by
+     * box distance.  This default implementation queries squares of
+     * doubling size until enough matches are found, which is exact
+     * because every claim within the square's radius overlaps it.
+     */
+    default List<Claim> findNearest(int x, int z, int k, int maxDistance, Predicate<Claim> predicate) {
+        List<Claim> matches = new ArrayList<>();
+        int radius = Math.min(NEAREST_START_RADIUS, maxDistance);
+        while (true) {
+            matches.clear();
+            for (Claim claim : findClaimsWithin(new Area(x - radius, z - radius, x + radius, z + radius))) {
+                if (predicate.test(claim)) matches.add(claim);
+            }
+            if (matches.size() >= k || radius >= maxDistance) break;
+            radius = (int) Math.min((long) maxDistance, 2L * radius);
+        }
+        matches.sort(Comparator.comparingInt(c -> c.getArea().boxDistanceToPoint(x, z)));
+        return matches.size() > k
+            ? new ArrayList<>(matches.subList(0, k))
+            : matches;
+    }
+
+    void clear();
+
+    /**
+     * Rough heap footprint of the index, for debugging.
+     */
+    long estimateBytes();
+
+    ClaimIndexType getType();
+}
@@ -9,6 +9,7 @@ public final class SQLStatic {
                        SQLClaim.class,
                        SQLClaimTrust.class,
                        SQLSubclaim.class,
+                       SQLSubclaimTrust.class,
                        SQLHome.class,
                        SQLHomeInvite.class);
     }
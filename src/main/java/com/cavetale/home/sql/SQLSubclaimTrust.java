@@ -0,0 +1,45 @@
+package com.cavetale.home.sql;
+
+import com.cavetale.home.SubclaimTrust;
+import com.winthier.sql.SQLRow;
+import com.winthier.sql.SQLRow.Name;
+import com.winthier.sql.SQLRow.NotNull;
+import com.winthier.sql.SQLRow.UniqueKey;
+import java.util.UUID;
+import lombok.Data;
+
+/**
+ * One trusted player in a subclaim.  The trustee Subclaim.PUBLIC_UUID
+ * stands for everybody.
+ */
+@Data
+@Name("subclaim_trust")
+@NotNull
+@UniqueKey({"subclaimId", "trustee"})
+public final class SQLSubclaimTrust implements SQLRow {
+    @Id private Integer id;
+
+    @Keyed private int claimId;
+
+    @Keyed private int subclaimId;
+
+    private UUID trustee;
+
+    @VarChar(15) private String type;
+
+    public SQLSubclaimTrust() { }
+
+    public SQLSubclaimTrust(final int claimId, final int subclaimId, final UUID trustee, final SubclaimTrust trust) {
+        this.claimId = claimId;
+        this.subclaimId = subclaimId;
+        this.trustee = trustee;
+        this.type = trust.key;
+    }
+
+    public SubclaimTrust parseTrust() {
+        for (SubclaimTrust it : SubclaimTrust.values()) {
+            if (it.key.equals(type)) return it;
+        }
+        return SubclaimTrust.NONE;
+    }
+}
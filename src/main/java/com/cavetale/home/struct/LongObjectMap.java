@@ -0,0 +1,181 @@
+package com.cavetale.home.struct;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map with primitive long keys.  Lookups
+ * neither box the key nor allocate.  Null values are not
+ * permitted; a null slot marks an empty bucket.
+ *
+ * @param <V> the value type
+ */
+public final class LongObjectMap<V> {
+    private static final int MIN_CAPACITY = 16;
+    private long[] keys;
+    private Object[] values;
+    private int size;
+    private int mask;
+
+    public LongObjectMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public LongObjectMap(final int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * 3 < expectedSize * 4) capacity <<= 1;
+        allocate(capacity);
+    }
+
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+        void accept(long key, V value);
+    }
+
+    /**
+     * Pack two ints into one key.  Used for slot and chunk
+     * coordinates.
+     */
+    public static long pack(int x, int z) {
+        return ((long) x << 32) | (z & 0xFFFFFFFFL);
+    }
+
+    public static int unpackX(long key) {
+        return (int) (key >> 32);
+    }
+
+    public static int unpackZ(long key) {
+        return (int) key;
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int i = mix(key) & mask;
+        while (true) {
+            Object value = values[i];
+            if (value == null) return null;
+            if (keys[i] == key) return (V) value;
+            i = (i + 1) & mask;
+        }
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (value == null) throw new NullPointerException("value");
+        int i = mix(key) & mask;
+        while (true) {
+            Object old = values[i];
+            if (old == null) break;
+            if (keys[i] == key) {
+                values[i] = value;
+                return (V) old;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        size += 1;
+        if (size * 4 > values.length * 3) rehash(values.length << 1);
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int i = mix(key) & mask;
+        while (true) {
+            Object old = values[i];
+            if (old == null) return null;
+            if (keys[i] == key) {
+                shiftBack(i);
+                size -= 1;
+                return (V) old;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    /**
+     * Backward shift deletion so that no tombstones are needed.
+     */
+    private void shiftBack(int gap) {
+        int i = gap;
+        while (true) {
+            i = (i + 1) & mask;
+            Object value = values[i];
+            if (value == null) break;
+            int home = mix(keys[i]) & mask;
+            // Move the entry into the gap unless its home bucket
+            // lies cyclically within (gap, i].
+            boolean inRange = gap <= i
+                ? (home > gap && home <= i)
+                : (home > gap || home <= i);
+            if (inRange) continue;
+            keys[gap] = keys[i];
+            values[gap] = value;
+            gap = i;
+        }
+        values[gap] = null;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int j = 0; j < oldValues.length; j += 1) {
+            Object value = oldValues[j];
+            if (value == null) continue;
+            int i = mix(oldKeys[j]) & mask;
+            while (values[i] != null) i = (i + 1) & mask;
+            keys[i] = oldKeys[j];
+            values[i] = value;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int capacity() {
+        return values.length;
+    }
+
+    public void clear() {
+        if (size == 0) return;
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(EntryConsumer<V> consumer) {
+        for (int i = 0; i < values.length; i += 1) {
+            Object value = values[i];
+            if (value != null) consumer.accept(keys[i], (V) value);
+        }
+    }
+
+    /**
+     * Rough heap footprint of the table arrays, not counting the
+     * values themselves.  Assumes compressed oops.
+     */
+    public long estimateBytes() {
+        return 16L + 8L * keys.length + 16L + 4L * values.length;
+    }
+}
@@ -0,0 +1,35 @@
+package com.cavetale.home;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public final class AreaTest {
+    @Test
+    public void testMaxOutsetMatchesBruteForce() {
+        Random random = new Random(6);
+        for (int i = 0; i < 10000; i += 1) {
+            Area area = new Area(0, 0, random.nextInt(200), random.nextInt(200));
+            long blocks = random.nextInt(4) == 0
+                ? (long) area.size() + random.nextInt(3) - 1
+                : (long) random.nextInt(1 << 20);
+            assertEquals(area + " " + blocks, bruteMaxOutset(area, blocks), area.maxOutset(blocks));
+        }
+    }
+
+    @Test
+    public void testMaxOutsetLarge() {
+        Area area = new Area(0, 0, 0, 0);
+        assertEquals(bruteMaxOutset(area, 1L << 40), area.maxOutset(1L << 40));
+        assertEquals(0, new Area(0, 0, 9, 9).maxOutset(99L));
+    }
+
+    private static int bruteMaxOutset(Area area, long blocks) {
+        long w = area.width();
+        long h = area.height();
+        if (w * h > blocks) return 0;
+        int n = 0;
+        while ((w + 2L * n + 2L) * (h + 2L * n + 2L) <= blocks) n += 1;
+        return n;
+    }
+}
@@ -0,0 +1,93 @@
+package com.cavetale.home;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public final class ClaimOverlapsTest {
+    @Test
+    public void testSweepMatchesBruteForce() {
+        Random random = new Random(1);
+        for (int round = 0; round < 200; round += 1) {
+            List<String> worlds = new ArrayList<>();
+            List<Area> areas = new ArrayList<>();
+            randomAreas(random, 1 + random.nextInt(120), worlds, areas);
+            int[][] result = ClaimOverlaps.findLaterOverlaps(worlds, areas);
+            for (int i = 0; i < areas.size(); i += 1) {
+                List<Integer> expected = new ArrayList<>();
+                for (int j = i + 1; j < areas.size(); j += 1) {
+                    if (worlds.get(i).equals(worlds.get(j)) && areas.get(i).overlaps(areas.get(j))) expected.add(j);
+                }
+                int[] expectedArray = expected.isEmpty() ? null : expected.stream().mapToInt(Integer::intValue).toArray();
+                assertArrayEquals("round " + round + " area " + i, expectedArray, result[i]);
+            }
+        }
+    }
+
+    /**
+     * A row of claims along z, all sharing one x range, with a few
+     * overlaps sprinkled in.
+     */
+    @Test
+    public void testRowOfClaims() {
+        List<String> worlds = new ArrayList<>();
+        List<Area> areas = new ArrayList<>();
+        for (int i = 0; i < 1000; i += 1) {
+            worlds.add("world");
+            areas.add(new Area(0, i * 10, 9, i * 10 + 9));
+        }
+        worlds.add("world");
+        areas.add(new Area(5, 15, 5, 25));
+        int[][] result = ClaimOverlaps.findLaterOverlaps(worlds, areas);
+        for (int i = 0; i < 1000; i += 1) {
+            if (i == 1 || i == 2) {
+                assertArrayEquals(new int[] {1000}, result[i]);
+            } else {
+                assertNull(result[i]);
+            }
+        }
+        assertNull(result[1000]);
+    }
+
+    /**
+     * The decision must be the same as that of the old nested loop
+     * in HomePlugin#loadFromDatabase.
+     */
+    @Test
+    public void testDoomedMatchesNestedLoop() {
+        Random random = new Random(2);
+        for (int round = 0; round < 200; round += 1) {
+            List<String> worlds = new ArrayList<>();
+            List<Area> areas = new ArrayList<>();
+            randomAreas(random, 1 + random.nextInt(60), worlds, areas);
+            int[] blocks = new int[areas.size()];
+            for (int i = 0; i < blocks.length; i += 1) blocks[i] = random.nextInt(4) * 100;
+            boolean[] doomed = ClaimOverlaps.findDoomed(ClaimOverlaps.findLaterOverlaps(worlds, areas), blocks);
+            boolean[] expected = new boolean[areas.size()];
+            for (int i = 0; i < areas.size() - 1; i += 1) {
+                if (expected[i]) continue;
+                List<Integer> overlapping = new ArrayList<>();
+                overlapping.add(i);
+                for (int j = i + 1; j < areas.size(); j += 1) {
+                    if (worlds.get(i).equals(worlds.get(j)) && areas.get(i).overlaps(areas.get(j))) overlapping.add(j);
+                }
+                if (overlapping.size() == 1) continue;
+                Collections.sort(overlapping, (l, r) -> Integer.compare(blocks[r], blocks[l]));
+                for (int j = 1; j < overlapping.size(); j += 1) expected[overlapping.get(j)] = true;
+            }
+            assertArrayEquals("round " + round, expected, doomed);
+        }
+    }
+
+    private static void randomAreas(Random random, int count, List<String> worlds, List<Area> areas) {
+        for (int i = 0; i < count; i += 1) {
+            int ax = random.nextInt(200) - 100;
+            int ay = random.nextInt(200) - 100;
+            worlds.add(random.nextInt(3) == 0 ? "nether" : "world");
+            areas.add(new Area(ax, ay, ax + random.nextInt(40), ay + random.nextInt(40)));
+        }
+    }
+}
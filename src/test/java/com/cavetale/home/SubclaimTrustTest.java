@@ -0,0 +1,68 @@
+package com.cavetale.home;
+
+import com.cavetale.home.sql.SQLSubclaim;
+import com.cavetale.home.sql.SQLSubclaimTrust;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Check the sorted trust arrays of Subclaim against a plain map.
+ */
+public final class SubclaimTrustTest {
+    @Test
+    public void testTrustMatchesMap() {
+        Random random = new Random(4);
+        Area area = new Area(0, 0, 15, 15);
+        Claim parent = new Claim(null, new UUID(1L, 1L), "world", area);
+        Subclaim subclaim = new Subclaim(null, parent, new SQLSubclaim(1, "world", area));
+        // Few distinct UUIDs, some sharing their upper half
+        List<UUID> uuids = new ArrayList<>();
+        uuids.add(Subclaim.PUBLIC_UUID);
+        for (int i = 0; i < 40; i += 1) {
+            uuids.add(new UUID(random.nextInt(8) - 4, random.nextLong()));
+        }
+        SubclaimTrust[] trusts = SubclaimTrust.values();
+        Map<UUID, SubclaimTrust> expected = new HashMap<>();
+        for (int i = 0; i < 2000; i += 1) {
+            UUID uuid = uuids.get(random.nextInt(uuids.size()));
+            SubclaimTrust trust = trusts[random.nextInt(trusts.length)];
+            subclaim.loadTrust(new SQLSubclaimTrust(1, 1, uuid, trust));
+            if (trust == SubclaimTrust.NONE) {
+                expected.remove(uuid);
+            } else {
+                expected.put(uuid, trust);
+            }
+            check(subclaim, expected);
+        }
+    }
+
+    private static void check(Subclaim subclaim, Map<UUID, SubclaimTrust> expected) {
+        assertEquals(expected.size(), subclaim.getTrustCount());
+        List<UUID> trusted = subclaim.getTrustedUuids();
+        assertEquals(expected.keySet(), Set.copyOf(trusted));
+        // Public first, then sorted by the signed UUID halves
+        int from = expected.containsKey(Subclaim.PUBLIC_UUID) ? 1 : 0;
+        if (from == 1) assertEquals(Subclaim.PUBLIC_UUID, trusted.get(0));
+        for (int i = from + 1; i < trusted.size(); i += 1) {
+            UUID a = trusted.get(i - 1);
+            UUID b = trusted.get(i);
+            int cmp = a.getMostSignificantBits() != b.getMostSignificantBits()
+                ? Long.compare(a.getMostSignificantBits(), b.getMostSignificantBits())
+                : Long.compare(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+            assertTrue("sorted", cmp < 0);
+        }
+        Map<SubclaimTrust, Set<UUID>> map = subclaim.getTrustedMap();
+        for (SubclaimTrust trust : SubclaimTrust.values()) {
+            for (UUID uuid : map.get(trust)) {
+                assertEquals(expected.get(uuid), trust);
+            }
+        }
+    }
+}
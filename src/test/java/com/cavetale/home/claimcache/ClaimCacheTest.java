@@ -0,0 +1,52 @@
+package com.cavetale.home.claimcache;
+
+import com.cavetale.home.Area;
+import com.cavetale.home.Claim;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public final class ClaimCacheTest {
+    private static final UUID OWNER = new UUID(1L, 1L);
+
+    /**
+     * findMaxGrowth must stop right before the first ring which
+     * would overlap another claim, as if growing one ring at a time.
+     */
+    @Test
+    public void testFindMaxGrowthMatchesBruteForce() {
+        Random random = new Random(7);
+        for (ClaimIndexType type : ClaimIndexType.values()) {
+            ClaimCache claimCache = new ClaimCache();
+            claimCache.initialize(List.of("world"), Map.of(), w -> type);
+            List<Claim> claims = new ArrayList<>();
+            for (int i = 0; i < 200; i += 1) {
+                int ax = random.nextInt(2000) - 1000;
+                int ay = random.nextInt(2000) - 1000;
+                Claim claim = new Claim(null, OWNER, "world", new Area(ax, ay, ax + random.nextInt(50), ay + random.nextInt(50)));
+                claims.add(claim);
+                claimCache.add(claim);
+            }
+            for (int i = 0; i < 500; i += 1) {
+                Claim claim = claims.get(random.nextInt(claims.size()));
+                int maxSteps = random.nextInt(300);
+                int expected = 0;
+                while (expected < maxSteps && !overlapsAny(claims, claim, claim.getArea().outset(expected + 1))) {
+                    expected += 1;
+                }
+                assertEquals(expected, claimCache.findMaxGrowth("world", claim.getArea(), claim, maxSteps));
+            }
+        }
+    }
+
+    private static boolean overlapsAny(List<Claim> claims, Claim ignoreClaim, Area area) {
+        for (Claim claim : claims) {
+            if (claim != ignoreClaim && claim.getArea().overlaps(area)) return true;
+        }
+        return false;
+    }
+}
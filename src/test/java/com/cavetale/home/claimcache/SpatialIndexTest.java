@@ -0,0 +1,129 @@
+package com.cavetale.home.claimcache;
+
+import com.cavetale.home.Area;
+import com.cavetale.home.Claim;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.function.Predicate;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Check every index backend against a brute force scan of all
+ * claims.
+ */
+public final class SpatialIndexTest {
+    private static final UUID OWNER = new UUID(1L, 1L);
+
+    @Test
+    public void testSlots() {
+        testRandom(ClaimIndexType.SLOTS);
+    }
+
+    @Test
+    public void testRTree() {
+        testRandom(ClaimIndexType.RTREE);
+    }
+
+    @Test
+    public void testRTreeInsertAll() {
+        Random random = new Random(3);
+        List<Claim> claims = new ArrayList<>();
+        for (int i = 0; i < 500; i += 1) claims.add(randomClaim(random));
+        SpatialIndex index = ClaimIndexType.RTREE.create();
+        index.insertAll(claims);
+        check(random, index, claims, new IdentityHashMap<>());
+    }
+
+    private static void testRandom(ClaimIndexType type) {
+        Random random = new Random(type.ordinal());
+        SpatialIndex index = type.create();
+        List<Claim> claims = new ArrayList<>();
+        // Claims are removed under the area they were inserted with
+        Map<Claim, Area> areas = new IdentityHashMap<>();
+        for (int round = 0; round < 40; round += 1) {
+            for (int i = 0; i < 50; i += 1) {
+                if (!claims.isEmpty() && random.nextInt(3) == 0) {
+                    Claim claim = claims.remove(random.nextInt(claims.size()));
+                    index.remove(claim, areas.remove(claim));
+                } else {
+                    Claim claim = randomClaim(random);
+                    claims.add(claim);
+                    areas.put(claim, claim.getArea());
+                    index.insert(claim, claim.getArea());
+                }
+            }
+            check(random, index, claims, areas);
+        }
+        index.clear();
+        assertNull(index.findClaimAt(0, 0));
+        assertTrue(index.findClaimsWithin(new Area(-5000, -5000, 5000, 5000)).isEmpty());
+    }
+
+    private static void check(Random random, SpatialIndex index, List<Claim> claims, Map<Claim, Area> areas) {
+        for (int i = 0; i < 200; i += 1) {
+            final int x = random.nextInt(3000) - 1500;
+            final int z = random.nextInt(3000) - 1500;
+            Claim found = index.findClaimAt(x, z);
+            boolean any = false;
+            for (Claim claim : claims) any |= claim.getArea().contains(x, z);
+            if (!any) {
+                assertNull(found);
+            } else {
+                assertTrue(found != null && claims.contains(found) && found.getArea().contains(x, z));
+            }
+        }
+        for (int i = 0; i < 50; i += 1) {
+            Area area = randomArea(random);
+            List<Claim> found = index.findClaimsWithin(area);
+            assertEquals("duplicates", found.size(), new HashSet<>(found).size());
+            List<Claim> expected = new ArrayList<>();
+            for (Claim claim : claims) {
+                if (claim.getArea().overlaps(area)) expected.add(claim);
+            }
+            assertEquals(new HashSet<>(expected), new HashSet<>(found));
+        }
+        for (int i = 0; i < 50; i += 1) {
+            final int x = random.nextInt(3000) - 1500;
+            final int z = random.nextInt(3000) - 1500;
+            final int k = 1 + random.nextInt(5);
+            final int maxDistance = random.nextInt(1000);
+            final int parity = random.nextInt(2);
+            Predicate<Claim> predicate = c -> (c.getArea().ax & 1) == parity;
+            List<Claim> found = index.findNearest(x, z, k, maxDistance, predicate);
+            assertEquals("duplicates", found.size(), new HashSet<>(found).size());
+            List<Integer> expected = new ArrayList<>();
+            for (Claim claim : claims) {
+                int distance = claim.getArea().boxDistanceToPoint(x, z);
+                if (distance <= maxDistance && predicate.test(claim)) expected.add(distance);
+            }
+            Collections.sort(expected);
+            List<Integer> actual = new ArrayList<>();
+            for (Claim claim : found) {
+                assertTrue(predicate.test(claim));
+                actual.add(claim.getArea().boxDistanceToPoint(x, z));
+            }
+            assertEquals(expected.subList(0, Math.min(k, expected.size())), actual);
+        }
+    }
+
+    private static Claim randomClaim(Random random) {
+        return new Claim(null, OWNER, "world", randomArea(random));
+    }
+
+    /**
+     * Mostly small areas, and some spanning several slots.
+     */
+    private static Area randomArea(Random random) {
+        final int ax = random.nextInt(3000) - 1500;
+        final int ay = random.nextInt(3000) - 1500;
+        final int max = random.nextInt(10) == 0 ? 1000 : 64;
+        return new Area(ax, ay, ax + random.nextInt(max), ay + random.nextInt(max));
+    }
+}
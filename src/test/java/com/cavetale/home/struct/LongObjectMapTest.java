@@ -0,0 +1,63 @@
+package com.cavetale.home.struct;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public final class LongObjectMapTest {
+    /**
+     * Random puts and removes on a small key range, so that probe
+     * chains collide and wrap around the table, which exercises the
+     * backward shift deletion.
+     */
+    @Test
+    public void testMatchesHashMap() {
+        Random random = new Random(5);
+        for (int range : new int[] {8, 64, 1000}) {
+            LongObjectMap<Long> map = new LongObjectMap<>();
+            Map<Long, Long> expected = new HashMap<>();
+            for (int i = 0; i < 20000; i += 1) {
+                long key = LongObjectMap.pack(random.nextInt(range) - range / 2, random.nextInt(3) - 1);
+                if (random.nextInt(3) == 0) {
+                    assertEquals(expected.remove(key), map.remove(key));
+                } else {
+                    long value = random.nextLong();
+                    assertEquals(expected.put(key, value), map.put(key, value));
+                }
+                assertEquals(expected.size(), map.size());
+                if (i % 97 == 0) check(map, expected, range);
+            }
+            check(map, expected, range);
+            map.clear();
+            assertTrue(map.isEmpty());
+            assertNull(map.get(expected.keySet().iterator().next()));
+        }
+    }
+
+    private static void check(LongObjectMap<Long> map, Map<Long, Long> expected, int range) {
+        for (int x = -range / 2; x < range - range / 2; x += 1) {
+            for (int z = -1; z <= 1; z += 1) {
+                long key = LongObjectMap.pack(x, z);
+                assertEquals(expected.get(key), map.get(key));
+                assertEquals(expected.containsKey(key), map.containsKey(key));
+            }
+        }
+        Map<Long, Long> visited = new HashMap<>();
+        map.forEach((key, value) -> assertNull(visited.put(key, value)));
+        assertEquals(expected, visited);
+    }
+
+    @Test
+    public void testPack() {
+        int[] values = {0, 1, -1, Integer.MAX_VALUE, Integer.MIN_VALUE, 12345, -67890};
+        for (int x : values) {
+            for (int z : values) {
+                long key = LongObjectMap.pack(x, z);
+                assertEquals(x, LongObjectMap.unpackX(key));
+                assertEquals(z, LongObjectMap.unpackZ(key));
+            }
+        }
+    }
+}